@@ -0,0 +1,80 @@
+package org.example.benchmarks;
+
+import org.example.configuration.DeliveryProperties;
+import org.example.configuration.DeliveryProperties.ShopDelivery;
+import org.example.entity.Shop;
+import org.example.service.BasketOptimizer;
+import org.example.service.BasketOptimizer.BasketItem;
+import org.example.service.BasketOptimizer.ItemOption;
+import org.example.service.BasketOptimizer.Plan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчетная часть CartService.optimizeCart: распределение корзины по магазинам.
+ * Загрузка корзины и вариантов из базы сюда не входит.
+ * До 17 позиций с вариантами в обоих магазинах работает точный перебор, дальше - эвристика.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BasketOptimizerBenchmark {
+
+    @Param({"5", "15", "40", "200"})
+    int cartSize;
+
+    private BasketOptimizer optimizer;
+    private List<BasketItem> items;
+
+    @Setup
+    public void setUp() {
+        // Условия доставки как в application.yml, плюс порог бесплатной доставки
+        DeliveryProperties delivery = new DeliveryProperties();
+        delivery.getShops().put(Shop.SAMOKAT, shopDelivery("99.00", "1500.00"));
+        delivery.getShops().put(Shop.LAVKA, shopDelivery("199.00", "2500.00"));
+        optimizer = new BasketOptimizer(delivery, 200_000L);
+
+        Random random = new Random(5);
+        items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            long price = 3_000 + random.nextInt(50_000);
+            List<ItemOption> options = new ArrayList<>();
+            // Каждая десятая позиция есть только в одном магазине
+            options.add(new ItemOption(i * 2L + 1, Shop.SAMOKAT, "Товар " + i, price));
+            if (i % 10 != 9) {
+                options.add(new ItemOption(i * 2L + 2, Shop.LAVKA, "Товар " + i, price - 1_500 + random.nextInt(3_000)));
+            }
+            items.add(new BasketItem(i * 2L + 1, 1 + random.nextInt(3), options));
+        }
+    }
+
+    @Benchmark
+    public Plan optimize() {
+        return optimizer.optimize(items);
+    }
+
+    private static ShopDelivery shopDelivery(String fee, String freeFrom) {
+        ShopDelivery delivery = new ShopDelivery();
+        delivery.setFee(new BigDecimal(fee));
+        delivery.setFreeFrom(new BigDecimal(freeFrom));
+        return delivery;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа benchmarks.jar: принимает обычные аргументы JMH (-p, -prof gc, фильтр по имени),
+ * но по умолчанию пишет результат в JSON, чтобы прогоны можно было сравнивать между собой
+ */
+public final class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT = "benchmarks/target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = cmd;
+        if (!cmd.getResultFormat().hasValue()) {
+            options = new OptionsBuilder()
+                    .parent(cmd)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(cmd.getResult().orElse(DEFAULT_RESULT))
+                    .build();
+        }
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.benchmarks;
+
+import org.example.entity.Product;
+import org.example.repository.ProductMatchRepository;
+import org.example.repository.ProductMatchRepository.Match;
+import org.example.repository.ProductRepository;
+import org.example.service.ComparisonIndex;
+import org.example.service.ProductService.ProductComparison;
+import org.example.service.ProductsChangedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс сравнения цен - то, что отдает ProductService.getProductsForComparison (GET /api/products/comparison):
+ * построение с нуля при первом запросе, чтение готового индекса и точечное обновление после пачки парсинга.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ComparisonIndexBenchmark {
+
+    private static final int CHANGED_BATCH = 100;
+
+    // Без сопоставлений все товары группируются по названию - самый затратный путь индекса
+    private static final ProductMatchRepository NO_MATCHES = new ProductMatchRepository(null) {
+        @Override
+        public List<Match> findAllPairs() {
+            return List.of();
+        }
+    };
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int catalogSize;
+
+    private List<Product> catalog;
+    private ComparisonIndex warmIndex;
+    private List<Product> changedBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = SyntheticCatalog.products(catalogSize, 42);
+        warmIndex = new ComparisonIndex(repositoryOf(catalog), NO_MATCHES);
+        warmIndex.getAll();
+
+        // Те же товары с новой ценой, как после очередного парсинга
+        changedBatch = new ArrayList<>(CHANGED_BATCH);
+        for (int i = 0; i < Math.min(CHANGED_BATCH, catalog.size()); i++) {
+            Product product = catalog.get(i * (catalog.size() / CHANGED_BATCH + 1) % catalog.size());
+            changedBatch.add(Product.builder()
+                    .id(product.getId())
+                    .title(product.getTitle())
+                    .oldPriceKopecks(product.getOldPriceKopecks())
+                    .newPriceKopecks(product.getOldPriceKopecks() - 100)
+                    .volume(product.getVolume())
+                    .ref(product.getRef())
+                    .shop(product.getShop())
+                    .build());
+        }
+    }
+
+    // Первый запрос после старта: чтение каталога, группировка и сортировка пар
+    @Benchmark
+    public List<ProductComparison> coldBuild() {
+        return new ComparisonIndex(repositoryOf(catalog), NO_MATCHES).getAll();
+    }
+
+    // Повторный запрос к готовому индексу
+    @Benchmark
+    public List<ProductComparison> warmGetAll() {
+        return warmIndex.getAll();
+    }
+
+    // Пачка измененных товаров и следующий запрос (пересортировка пар)
+    @Benchmark
+    public List<ProductComparison> updateAndGetAll() {
+        warmIndex.onProductsChanged(new ProductsChangedEvent(changedBatch));
+        return warmIndex.getAll();
+    }
+
+    /**
+     * Репозиторий, который вместо БД отдает синтетический каталог (индексу нужен только findProductsWithPrices)
+     */
+    static ProductRepository repositoryOf(List<Product> products) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findProductsWithPrices")) {
+                        return products;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
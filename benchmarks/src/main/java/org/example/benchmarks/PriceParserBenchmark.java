@@ -0,0 +1,67 @@
+package org.example.benchmarks;
+
+import org.example.util.PriceParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор цены из текста карточки: однопроходный PriceParser против прежнего Product.parsePrice
+ * (replaceAll с регулярным выражением, replace и new BigDecimal). Аллокации видны с -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PriceParserBenchmark {
+
+    private static final int TEXTS = 1024;
+
+    private String[] texts;
+
+    @Setup
+    public void setUp() {
+        texts = SyntheticCatalog.priceTexts(TEXTS, 11);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public void priceParser(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(PriceParser.parse(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS)
+    public void legacyRegexParse(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(legacyParsePrice(text));
+        }
+    }
+
+    // Прежняя реализация Product.parsePrice, оставлена как точка отсчета
+    private static BigDecimal legacyParsePrice(String priceStr) {
+        try {
+            String cleanPrice = priceStr.replaceAll("[^0-9.,]", "")
+                    .replace(",", ".");
+            return new BigDecimal(cleanPrice);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
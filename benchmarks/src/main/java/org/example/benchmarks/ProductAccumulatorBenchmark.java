@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.entity.Product;
+import org.example.util.ProductAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накопление карточек при прокрутке страницы, как в парсерах: на каждом шаге видны все уже загруженные карточки
+ * плюс новые, часть старых приходит повторно с догруженным объемом.
+ * На странице из N карточек обрабатывается около 3N карточек, поэтому при O(1) слиянии время страницы
+ * растет линейно с N, а не квадратично, как при поиске повтора по списку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class ProductAccumulatorBenchmark {
+
+    // Новых карточек на шаг прокрутки и сколько последних карточек шага еще видно на странице
+    private static final int CARDS_PER_STEP = 40;
+    private static final int VISIBLE_WINDOW = 120;
+
+    @Param({"1000", "10000", "100000"})
+    int cards;
+
+    private List<List<Product>> steps;
+
+    @Setup
+    public void setUp() {
+        List<Product> catalog = SyntheticCatalog.products(cards, 3);
+        steps = new ArrayList<>();
+        for (int loaded = CARDS_PER_STEP; loaded < cards + CARDS_PER_STEP; loaded += CARDS_PER_STEP) {
+            int to = Math.min(loaded, cards);
+            List<Product> step = new ArrayList<>();
+            for (int i = Math.max(0, to - VISIBLE_WINDOW); i < to; i++) {
+                Product card = catalog.get(i);
+                boolean fresh = i >= to - CARDS_PER_STEP;
+                // Свежая карточка часто еще без объема, он приходит на следующем шаге
+                step.add(Product.builder()
+                        .title(card.getTitle())
+                        .oldPriceStr(card.getOldPriceStr())
+                        .newPriceStr(card.getNewPriceStr())
+                        .volume(fresh && i % 3 == 0 ? null : card.getVolume())
+                        .ref(card.getRef())
+                        .shop(card.getShop())
+                        .build());
+            }
+            steps.add(step);
+        }
+    }
+
+    @Benchmark
+    public List<Product> scrollPage() {
+        ProductAccumulator products = new ProductAccumulator();
+        for (List<Product> step : steps) {
+            products.mergeAll(step);
+            products.drainChanged();
+        }
+        return products.getProducts();
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.benchmarks;
+
+import org.example.entity.Product;
+import org.example.service.ComparisonIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нормализация названия для группировки пар: вызывается для каждого товара при построении индекса сравнения
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductNameBenchmark {
+
+    private static final int TITLES = 1024;
+
+    private String[] titles;
+
+    @Setup
+    public void setUp() {
+        titles = SyntheticCatalog.products(TITLES, 7).stream().map(Product::getTitle).toArray(String[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TITLES)
+    public void normalizeProductName(Blackhole blackhole) {
+        for (String title : titles) {
+            blackhole.consume(ComparisonIndex.normalizeProductName(title));
+        }
+    }
+}
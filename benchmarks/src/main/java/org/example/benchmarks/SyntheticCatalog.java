@@ -0,0 +1,113 @@
+package org.example.benchmarks;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Детерминированный синтетический каталог: товары с русскими названиями, объемами и ценами в обоих магазинах.
+ * Примерно половина названий повторяется в другом магазине (с другим регистром и пунктуацией),
+ * чтобы индекс сравнения находил пары, как на реальных данных.
+ */
+public final class SyntheticCatalog {
+
+    private static final String[] BRANDS = {
+            "Святой Источник", "Шишкин Лес", "Архыз", "BonAqua", "Aqua Minerale", "Нарзан", "Ессентуки",
+            "Простоквашино", "Домик в деревне", "Вкуснотеево", "Агуша", "Фрутоняня", "Добрый", "Rich", "J7",
+            "Бородино", "Хлебный дом", "Черкизово", "Мираторг", "Петелинка", "Макфа", "Увелка", "Мистраль"
+    };
+
+    private static final String[] KINDS = {
+            "Вода питьевая", "Вода минеральная газированная", "Вода негазированная", "Молоко", "Кефир", "Йогурт",
+            "Сок яблочный", "Сок апельсиновый", "Нектар персиковый", "Хлеб ржаной", "Батон нарезной",
+            "Филе куриное", "Фарш говяжий", "Макароны спагетти", "Гречка ядрица", "Рис длиннозерный", "Творог"
+    };
+
+    private static final String[] VARIANTS = {
+            "", "детская", "столовая", "2,5%", "3,2%", "классический", "без сахара", "осветленный", "охлажденное",
+            "высший сорт", "ультрапастеризованное", "для детей с 3 лет"
+    };
+
+    private static final String[] VOLUMES = {
+            "0,33 л", "0,5 л", "1 л", "1,5 л", "5 л", "200 г", "400 г", "450 г", "900 г", "1 кг", "930 мл"
+    };
+
+    // Собственные названия не пересекаются с общими, пока в магазине меньше 100 млн товаров
+    private static final int UNIQUE_TITLES_FROM = 100_000_000;
+
+    private SyntheticCatalog() {
+    }
+
+    /**
+     * size товаров, поровну между магазинами; seed фиксирует каталог между запусками
+     */
+    public static List<Product> products(int size, long seed) {
+        List<Product> products = new ArrayList<>(size);
+        Shop[] shops = Shop.values();
+        for (int i = 0; i < size; i++) {
+            Product product = product(shops[i % shops.length], i / shops.length, seed);
+            product.setId((long) i + 1);
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Товар index магазина shop без обращения к остальному каталогу - каталог любого размера
+     * можно отдавать по страницам, не держа его в памяти.
+     * Примерно три четверти товаров с тем же index есть в каждом магазине под своим написанием названия.
+     */
+    public static Product product(Shop shop, int index, long seed) {
+        Random random = new Random(seed * 1_000_003L + index * 31L + shop.ordinal());
+        // Общее название у товаров с одним index во всех магазинах, иначе собственное
+        int titleSeed = random.nextInt(4) == 0 ? UNIQUE_TITLES_FROM + index * Shop.values().length + shop.ordinal() : index;
+        long kopecks = 3_000 + random.nextInt(200_000);
+        Product product = Product.builder()
+                .title(title(titleSeed, shop))
+                .oldPriceStr(priceText(kopecks + random.nextInt(5_000), random))
+                .newPriceStr(random.nextInt(3) == 0 ? priceText(kopecks, random) : null)
+                .volume(VOLUMES[Math.floorMod(titleSeed * 31, VOLUMES.length)])
+                .ref("https://" + shop.name().toLowerCase() + ".example/product/" + index)
+                .shop(shop)
+                .build();
+        product.convertPrices();
+        return product;
+    }
+
+    /**
+     * Тексты цен в форматах, которые встречаются в карточках магазинов
+     */
+    public static String[] priceTexts(int size, long seed) {
+        Random random = new Random(seed);
+        String[] texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            texts[i] = priceText(3_000 + random.nextInt(2_000_000), random);
+        }
+        return texts;
+    }
+
+    private static String title(int seed, Shop shop) {
+        String brand = BRANDS[Math.floorMod(seed * 7, BRANDS.length)];
+        String kind = KINDS[Math.floorMod(seed * 13 + seed / BRANDS.length, KINDS.length)];
+        String variant = VARIANTS[Math.floorMod(seed / 3, VARIANTS.length)];
+        String title = kind + " " + brand + (variant.isEmpty() ? "" : " " + variant) + " арт. " + seed;
+        // Магазины пишут одно и то же название по-разному
+        return shop == Shop.LAVKA ? title.replace(" ", "  ") : title.toUpperCase();
+    }
+
+    private static String priceText(long kopecks, Random random) {
+        long rubles = kopecks / 100;
+        return switch (random.nextInt(4)) {
+            case 0 -> rubles + " ₽";
+            case 1 -> rubles + "," + String.format("%02d", kopecks % 100) + " ₽";
+            case 2 -> "от " + rubles + " ₽";
+            // Разряды через узкий пробел, знак рубля через неразрывный
+            default -> rubles >= 1000
+                    ? rubles / 1000 + "\u2009" + String.format("%03d", rubles % 1000) + "\u00A0₽"
+                    : rubles + "\u00A0₽";
+        };
+    }
+}
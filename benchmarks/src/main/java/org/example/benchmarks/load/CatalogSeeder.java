@@ -0,0 +1,119 @@
+package org.example.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Подготовка данных через API сервиса: парсинг каталогов с заглушки магазинов (вся цепочка парсер - сохранение),
+ * затем корзины из загруженных товаров. Товары и слова для поиска собираются из каталога в базе.
+ */
+@Slf4j
+final class CatalogSeeder {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_SEARCH_WORDS = 2000;
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final ApiClient api;
+    private final Random random;
+
+    CatalogSeeder(ApiClient api, long seed) {
+        this.api = api;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Запустить парсинг всех магазинов и дождаться его завершения
+     */
+    void parseCatalog(Duration timeout) throws IOException, InterruptedException {
+        JsonNode job = api.post("/api/parsing/run-all", null);
+        String id = job.path("id").asText();
+        log.info("Parsing job {} started", id);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (isActive(job.path("status").asText())) {
+            if (System.nanoTime() > deadline) {
+                api.delete("/api/parsing/jobs/" + id);
+                throw new IllegalStateException("Parsing job " + id + " did not finish in " + timeout);
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+            job = api.get("/api/parsing/jobs/" + id);
+        }
+        if (!"COMPLETED".equals(job.path("status").asText())) {
+            throw new IllegalStateException("Parsing job " + id + " finished with " + job.path("status").asText()
+                    + ": " + job.path("error").asText());
+        }
+        log.info("Parsing job {} completed: {} products found, shops {}", id,
+                job.path("productsFound").asInt(), job.path("shopStates"));
+    }
+
+    /**
+     * Товары из базы (keyset-обходом по всему каталогу), корзины по cartCount штук до cartSize позиций
+     */
+    SeedData seedCarts(int cartCount, int cartSize) throws IOException, InterruptedException {
+        List<Long> productIds = new ArrayList<>();
+        Set<String> words = new LinkedHashSet<>();
+        String cursor = "";
+        while (cursor != null) {
+            JsonNode page = api.get("/api/products/pageable?size=" + PAGE_SIZE
+                    + "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            for (JsonNode product : page.path("items")) {
+                productIds.add(product.path("id").asLong());
+                collectWords(product.path("title").asText(), words);
+            }
+            cursor = page.path("hasNext").asBoolean() ? page.path("nextCursor").asText() : null;
+        }
+        if (productIds.isEmpty()) {
+            throw new IllegalStateException("Catalog is empty: run with seeding enabled first");
+        }
+        log.info("Catalog has {} products", productIds.size());
+
+        long[] carts = new long[cartCount];
+        long[][] cartProducts = new long[cartCount][];
+        for (int c = 0; c < cartCount; c++) {
+            carts[c] = api.post("/api/cart/create", null).path("id").asLong();
+            cartProducts[c] = new long[1 + random.nextInt(Math.max(1, cartSize))];
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (int i = 0; i < cartProducts[c].length; i++) {
+                cartProducts[c][i] = productIds.get(random.nextInt(productIds.size()));
+                items.add(Map.of("productId", cartProducts[c][i], "quantity", 1 + random.nextInt(3)));
+            }
+            api.post("/api/cart/" + carts[c] + "/items", Map.of("mode", "SET", "items", items));
+        }
+        log.info("Created {} carts", cartCount);
+
+        return new SeedData(productIds.stream().mapToLong(Long::longValue).toArray(),
+                words.toArray(String[]::new), carts, cartProducts);
+    }
+
+    private static void collectWords(String title, Set<String> words) {
+        if (words.size() >= MAX_SEARCH_WORDS) {
+            return;
+        }
+        for (String word : title.toLowerCase().split("\\s+")) {
+            if (word.length() >= 4 && word.chars().allMatch(Character::isLetter)) {
+                words.add(word);
+            }
+        }
+    }
+
+    private static boolean isActive(String status) {
+        return "QUEUED".equals(status) || "RUNNING".equals(status);
+    }
+
+    /**
+     * Что есть в базе для генерации запросов: id товаров, слова из названий, корзины и их товары
+     */
+    record SeedData(long[] productIds, String[] searchWords, long[] cartIds, long[][] cartProducts) {
+    }
+}
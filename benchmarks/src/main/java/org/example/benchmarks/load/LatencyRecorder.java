@@ -0,0 +1,58 @@
+package org.example.benchmarks.load;
+
+import java.util.Arrays;
+
+/**
+ * Задержки одного эндпоинта за прогон. Хранятся все значения (в микросекундах),
+ * перцентили считаются точно по отсортированному массиву в конце прогона.
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long dropped;
+
+    synchronized void record(long latencyMicros, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyMicros;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * Запрос не отправлен: достигнут предел одновременных запросов
+     */
+    synchronized void drop() {
+        dropped++;
+    }
+
+    synchronized Summary summarize(double durationSeconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long latency : sorted) {
+            total += latency;
+        }
+        return new Summary(count, errors, dropped, count / durationSeconds,
+                count == 0 ? 0 : total / 1000.0 / count,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                count == 0 ? 0 : sorted[count - 1] / 1000.0);
+    }
+
+    // Перцентиль в миллисекундах (метод ближайшего ранга)
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, rank)] / 1000.0;
+    }
+
+    record Summary(long requests, long errors, long dropped, double throughput,
+                   double meanMs, double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+}
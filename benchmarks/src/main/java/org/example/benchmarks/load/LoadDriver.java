@@ -0,0 +1,78 @@
+package org.example.benchmarks.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.benchmarks.load.TrafficMix.Call;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Открытая модель нагрузки: запросы отправляются по расписанию с заданной частотой, не дожидаясь ответов.
+ * Задержка считается от запланированного момента отправки, а не от фактического, -
+ * иначе замедление сервиса прятало бы очередь перед ним (coordinated omission).
+ */
+@Slf4j
+final class LoadDriver {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1);
+
+    private final HttpClient client;
+    private final TrafficMix mix;
+    private final int rps;
+    private final int maxInFlight;
+
+    LoadDriver(HttpClient client, TrafficMix mix, int rps, int maxInFlight) {
+        this.client = client;
+        this.mix = mix;
+        this.rps = Math.max(1, rps);
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Нагрузка в течение duration; задержки по эндпоинтам
+     */
+    Map<String, LatencyRecorder> run(Duration duration, long seed) throws InterruptedException {
+        Map<String, LatencyRecorder> recorders = new TreeMap<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Random random = new Random(seed);
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long sent = 0; ; sent++) {
+            long scheduled = start + sent * 1_000_000_000L / rps;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Call call = mix.next(random);
+            LatencyRecorder recorder = recorders.computeIfAbsent(call.endpoint(), endpoint -> new LatencyRecorder());
+            // Сервис не успевает: лишний запрос учитывается как отброшенный, а не копится в клиенте
+            if (!inFlight.tryAcquire()) {
+                recorder.drop();
+                continue;
+            }
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        recorder.record((System.nanoTime() - scheduled) / 1_000,
+                                error == null && response.statusCode() / 100 == 2);
+                        inFlight.release();
+                    });
+        }
+
+        if (!inFlight.tryAcquire(maxInFlight, DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("{} requests still in flight after {}", maxInFlight - inFlight.availablePermits(), DRAIN_TIMEOUT);
+        }
+        return recorders;
+    }
+}
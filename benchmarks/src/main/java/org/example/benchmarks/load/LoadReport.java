@@ -0,0 +1,73 @@
+package org.example.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.benchmarks.load.LatencyRecorder.Summary;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Итог прогона: задержки и пропускная способность по эндпоинтам из клиента,
+ * число SQL-запросов на запрос - со стороны сервиса (GET /api/diagnostics/queries)
+ */
+final class LoadReport {
+
+    private final Map<String, Object> settings;
+    private final double durationSeconds;
+    private final List<EndpointRow> endpoints = new ArrayList<>();
+
+    LoadReport(Map<String, Object> settings, double durationSeconds,
+               Map<String, LatencyRecorder> recorders, JsonNode queryStats) {
+        this.settings = settings;
+        this.durationSeconds = durationSeconds;
+
+        Map<String, JsonNode> queriesByEndpoint = new HashMap<>();
+        if (queryStats != null) {
+            for (JsonNode stats : queryStats) {
+                queriesByEndpoint.put(stats.path("endpoint").asText(), stats);
+            }
+        }
+        recorders.forEach((endpoint, recorder) -> {
+            // Варианты одного эндпоинта (суффикс после ?) сервис считает вместе
+            int variant = endpoint.indexOf('?');
+            JsonNode queries = queriesByEndpoint.get(variant < 0 ? endpoint : endpoint.substring(0, variant));
+            endpoints.add(new EndpointRow(endpoint, recorder.summarize(durationSeconds),
+                    queries == null ? null : queries.path("queriesPerRequest").asDouble(),
+                    queries == null ? null : queries.path("maxQueries").asLong()));
+        });
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-38s %9s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "dropped", "req/s", "p50 ms", "p95 ms", "p99 ms", "db q/req");
+        long requests = 0;
+        for (EndpointRow row : endpoints) {
+            Summary s = row.latency();
+            requests += s.requests();
+            out.printf("%-38s %9d %8d %8d %9.1f %9.1f %9.1f %9.1f %9s%n",
+                    row.endpoint(), s.requests(), s.errors(), s.dropped(), s.throughput(),
+                    s.p50Ms(), s.p95Ms(), s.p99Ms(),
+                    row.dbQueriesPerRequest() == null ? "-" : String.format("%.1f", row.dbQueriesPerRequest()));
+        }
+        out.printf("total: %d requests in %.0f s, %.1f req/s%n", requests, durationSeconds, requests / durationSeconds);
+    }
+
+    void write(ObjectMapper mapper, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        mapper.copy().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), Map.of("settings", settings, "durationSeconds", durationSeconds, "endpoints", endpoints));
+    }
+
+    record EndpointRow(String endpoint, Summary latency, Double dbQueriesPerRequest, Long dbMaxQueries) {
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.benchmarks.load.CatalogSeeder.SeedData;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сквозной нагрузочный тест сервиса без выхода в интернет.
+ * Сервис запускается отдельно с профилем loadtest (локальная база goods_agr_loadtest, парсинг с заглушки):
+ *     createdb goods_agr_loadtest
+ *     java -jar service/target/service-0.0.1-SNAPSHOT-exec.jar --spring.profiles.active=loadtest
+ *     java -cp benchmarks/target/benchmarks.jar org.example.benchmarks.load.LoadTest products-per-shop=50000 rps=200
+ * Тест поднимает заглушку магазинов, запускает парсинг каталогов через API, создает корзины,
+ * после прогрева дает смешанную нагрузку с заданной частотой и печатает p50/p95/p99, req/s и SQL-запросы по эндпоинтам.
+ * Параметры - key=value (см. Options); отчет в JSON пишется в result.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ObjectMapper mapper = new ObjectMapper();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ApiClient api = new ApiClient(client, mapper, options.baseUrl);
+
+        try (ShopStub stub = new ShopStub(options.stubPort, options.productsPerShop, options.seed)) {
+            stub.start();
+            CatalogSeeder seeder = new CatalogSeeder(api, options.seed);
+            if (options.seedCatalog) {
+                seeder.parseCatalog(options.seedTimeout);
+                log.info("Shop stub served {} catalog pages", stub.getPagesServed());
+            }
+            SeedData data = seeder.seedCarts(options.carts, options.cartSize);
+
+            LoadDriver driver = new LoadDriver(client, new TrafficMix(api, data), options.rps, options.maxInFlight);
+            log.info("Warming up for {} at {} req/s", options.warmup, options.rps);
+            driver.run(options.warmup, options.seed);
+
+            resetQueryStats(api);
+            log.info("Measuring for {} at {} req/s", options.duration, options.rps);
+            Map<String, LatencyRecorder> recorders = driver.run(options.duration, options.seed + 1);
+
+            LoadReport report = new LoadReport(options.asMap(), options.duration.toMillis() / 1000.0,
+                    recorders, queryStats(api));
+            report.print(System.out);
+            report.write(mapper, options.result);
+            log.info("Report written to {}", options.result.toAbsolutePath());
+        }
+    }
+
+    private static void resetQueryStats(ApiClient api) throws InterruptedException {
+        try {
+            api.delete("/api/diagnostics/queries");
+        } catch (IOException e) {
+            log.warn("SQL query counting is not available ({}), is the service running with the loadtest profile?", e.getMessage());
+        }
+    }
+
+    private static JsonNode queryStats(ApiClient api) throws InterruptedException {
+        try {
+            return api.get("/api/diagnostics/queries");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Параметры прогона: key=value, например rps=200 duration=PT5M
+     */
+    static final class Options {
+        String baseUrl = "http://localhost:8080";
+        int stubPort = 8089;                  // Должен совпадать с loadtest.stub-port сервиса
+        int productsPerShop = 10_000;
+        int carts = 200;
+        int cartSize = 15;                    // Максимум позиций в корзине
+        boolean seedCatalog = true;           // false - использовать уже загруженный каталог
+        Duration seedTimeout = Duration.ofMinutes(30);
+        int rps = 50;
+        int maxInFlight = 256;
+        Duration warmup = Duration.ofSeconds(30);
+        Duration duration = Duration.ofMinutes(2);
+        long seed = 42;
+        Path result = Path.of("benchmarks/target/load-test-result.json");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Expected key=value, got: " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(0, eq)) {
+                    case "base-url" -> options.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    case "stub-port" -> options.stubPort = Integer.parseInt(value);
+                    case "products-per-shop" -> options.productsPerShop = Integer.parseInt(value);
+                    case "carts" -> options.carts = Integer.parseInt(value);
+                    case "cart-size" -> options.cartSize = Integer.parseInt(value);
+                    case "seed-catalog" -> options.seedCatalog = Boolean.parseBoolean(value);
+                    case "seed-timeout" -> options.seedTimeout = Duration.parse(value);
+                    case "rps" -> options.rps = Integer.parseInt(value);
+                    case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                    case "warmup" -> options.warmup = Duration.parse(value);
+                    case "duration" -> options.duration = Duration.parse(value);
+                    case "seed" -> options.seed = Long.parseLong(value);
+                    case "result" -> options.result = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg.substring(0, eq));
+                }
+            }
+            return options;
+        }
+
+        Map<String, Object> asMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("baseUrl", baseUrl);
+            map.put("productsPerShop", productsPerShop);
+            map.put("carts", carts);
+            map.put("cartSize", cartSize);
+            map.put("rps", rps);
+            map.put("maxInFlight", maxInFlight);
+            map.put("warmup", warmup.toString());
+            map.put("duration", duration.toString());
+            map.put("seed", seed);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.benchmarks.load;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.benchmarks.SyntheticCatalog;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная заглушка JSON API магазинов для профиля loadtest:
+ * GET /{shop}/catalog/{category}?offset=&limit= отдает страницу синтетического каталога
+ * в формате, который настроен для HttpJsonParser в application-loadtest.yml (цены в копейках).
+ * Страницы генерируются на лету, каталог целиком в памяти не хранится; категория не важна.
+ */
+public final class ShopStub implements AutoCloseable {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int productsPerShop;
+    private final long seed;
+    private final AtomicLong pagesServed = new AtomicLong();
+
+    public ShopStub(int port, int productsPerShop, long seed) throws IOException {
+        this.productsPerShop = productsPerShop;
+        this.seed = seed;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.executor = Executors.newFixedThreadPool(4, r -> {
+            Thread thread = new Thread(r, "shop-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public long getPagesServed() {
+        return pagesServed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Shop shop = path.length > 2 && "catalog".equals(path[2]) ? shop(path[1]) : null;
+            if (shop == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            Map<String, String> query = query(exchange.getRequestURI());
+            int offset = Math.max(0, intParam(query, "offset", 0));
+            int limit = Math.min(MAX_LIMIT, Math.max(1, intParam(query, "limit", 100)));
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody();
+                 JsonGenerator json = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeNumberField("total", productsPerShop);
+                json.writeArrayFieldStart("products");
+                for (int index = offset; index < Math.min(productsPerShop, offset + limit); index++) {
+                    writeProduct(json, SyntheticCatalog.product(shop, index, seed));
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            pagesServed.incrementAndGet();
+        }
+    }
+
+    private static void writeProduct(JsonGenerator json, Product product) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", product.getTitle());
+        json.writeStringField("url", product.getRef());
+        json.writeStringField("volume", product.getVolume());
+        // Основная цена всегда, цена со скидкой - только если она есть
+        json.writeNumberField("oldPrice", product.getOldPriceKopecks());
+        if (product.getNewPriceKopecks() != null) {
+            json.writeNumberField("price", product.getNewPriceKopecks());
+        }
+        json.writeEndObject();
+    }
+
+    private static Shop shop(String name) {
+        for (Shop shop : Shop.values()) {
+            if (shop.name().equalsIgnoreCase(name)) {
+                return shop;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String pair : uri.getRawQuery().split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        try {
+            return query.containsKey(name) ? Integer.parseInt(query.get(name)) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
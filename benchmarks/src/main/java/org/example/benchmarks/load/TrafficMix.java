@@ -0,0 +1,121 @@
+package org.example.benchmarks.load;
+
+import org.example.benchmarks.load.CatalogSeeder.SeedData;
+import org.example.entity.Shop;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Смешанный трафик: эндпоинты каталога, поиска, сравнения и корзины с весами,
+ * примерно как у пользователя, который ищет товары, сравнивает цены и собирает корзину.
+ * Имя эндпоинта - метод и шаблон пути, как их видит сервис (суффикс после ? различает варианты одного эндпоинта).
+ */
+final class TrafficMix {
+
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final int COMPARISON_PAGES = 50;
+
+    private final ApiClient api;
+    private final SeedData data;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private int totalWeight;
+
+    TrafficMix(ApiClient api, SeedData data) {
+        this.api = api;
+        this.data = data;
+
+        add("GET /api/products", 1, random -> get("/api/products"));
+        add("GET /api/products/pageable", 8, random ->
+                get("/api/products/pageable?page=" + random.nextInt(100) + "&size=20&sort=title"));
+        add("GET /api/products/{id}", 20, random -> get("/api/products/" + productId(random)));
+        add("GET /api/products/search", 25, this::search);
+        add("GET /api/products/comparison?page", 10, random ->
+                get("/api/products/comparison?page=" + random.nextInt(COMPARISON_PAGES) + "&size=20"));
+        add("GET /api/products/comparison", 1, random -> get("/api/products/comparison"));
+        add("GET /api/cart/{cartId}", 12, random -> get("/api/cart/" + cartId(random)));
+        add("POST /api/cart/{cartId}/items", 8, this::changeCart);
+        add("GET /api/cart/{cartId}/optimize", 15, random -> get("/api/cart/" + cartId(random) + "/optimize"));
+    }
+
+    Call next(Random random) {
+        int point = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            point -= endpoint.weight();
+            if (point < 0) {
+                return new Call(endpoint.name(), endpoint.request().apply(random));
+            }
+        }
+        throw new IllegalStateException("Traffic mix is empty");
+    }
+
+    private void add(String name, int weight, Function<Random, HttpRequest> request) {
+        endpoints.add(new Endpoint(name, weight, request));
+        totalWeight += weight;
+    }
+
+    /**
+     * Одно-два слова из названий; часть запросов с опечаткой, фильтром магазина или цены
+     */
+    private HttpRequest search(Random random) {
+        String query = word(random);
+        if (random.nextInt(3) == 0) {
+            query += " " + word(random);
+        }
+        if (random.nextInt(10) == 0 && query.length() > 4) {
+            int typo = 1 + random.nextInt(query.length() - 2);
+            query = query.substring(0, typo) + query.substring(typo + 1);
+        }
+        StringBuilder path = new StringBuilder("/api/products/search?query=")
+                .append(URLEncoder.encode(query, StandardCharsets.UTF_8))
+                .append("&size=").append(SEARCH_PAGE_SIZE);
+        if (random.nextInt(5) == 0) {
+            path.append("&shop=").append(Shop.values()[random.nextInt(Shop.values().length)]);
+        }
+        if (random.nextInt(5) == 0) {
+            path.append("&maxPrice=").append(100 + random.nextInt(900));
+        }
+        return get(path.toString());
+    }
+
+    /**
+     * Изменение количества товара из набора корзины (0 - удалить), чтобы корзины не росли бесконечно
+     */
+    private HttpRequest changeCart(Random random) {
+        int cart = random.nextInt(data.cartIds().length);
+        long[] products = data.cartProducts()[cart];
+        String body = "{\"mode\":\"SET\",\"items\":[{\"productId\":" + products[random.nextInt(products.length)]
+                + ",\"quantity\":" + random.nextInt(4) + "}]}";
+        return api.request("/api/cart/" + data.cartIds()[cart] + "/items")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return api.request(path).GET().build();
+    }
+
+    private long productId(Random random) {
+        return data.productIds()[random.nextInt(data.productIds().length)];
+    }
+
+    private long cartId(Random random) {
+        return data.cartIds()[random.nextInt(data.cartIds().length)];
+    }
+
+    private String word(Random random) {
+        return data.searchWords().length == 0 ? "вода" : data.searchWords()[random.nextInt(data.searchWords().length)];
+    }
+
+    private record Endpoint(String name, int weight, Function<Random, HttpRequest> request) {
+    }
+
+    record Call(String endpoint, HttpRequest request) {
+    }
+}
@@ -13,12 +13,13 @@ export function Cart() {
             const cart = await response.json();
             setCartId(cart.id);
 
-            // Загружаем товары из localStorage и добавляем на сервер
+            // Загружаем товары из localStorage и добавляем на сервер одним запросом
             const localCart = JSON.parse(localStorage.getItem('cart') || '[]');
-            for (const item of localCart) {
-                await fetch(`/api/cart/${cart.id}/add?productId=${item.productId}&quantity=${item.quantity}`, {
-                    method: 'POST',
-                });
+            if (localCart.length) {
+                await sendChanges(cart.id, 'ADD', localCart.map(item => ({
+                    productId: item.productId,
+                    quantity: item.quantity,
+                })));
             }
             // Обновляем список с сервера
             loadCartItems(cart.id);
@@ -26,6 +27,15 @@ export function Cart() {
         createCart();
     }, []);
 
+    // Пакетное изменение корзины на сервере
+    async function sendChanges(cartId, mode, items) {
+        await fetch(`/api/cart/${cartId}/items`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ mode, items }),
+        });
+    }
+
     // Функция загрузки товаров из backend корзины
     async function loadCartItems(cartId) {
         const resp = await fetch(`/api/cart/${cartId}`);
@@ -51,7 +61,7 @@ export function Cart() {
             setCartItems([...cartItems, { product, quantity: 1 }]);
         }
         // Отправим на сервер
-        await fetch(`/api/cart/${cartId}/add?productId=${productId}&quantity=1`, { method: 'POST' });
+        await sendChanges(cartId, 'ADD', [{ productId, quantity: 1 }]);
     }
 
     // Удалить товар
@@ -59,7 +69,7 @@ export function Cart() {
         if (!cartId) return;
         const updated = cartItems.filter(item => item.product.id !== productId);
         setCartItems(updated);
-        await fetch(`/api/cart/${cartId}/update?productId=${productId}&quantity=0`, { method: 'POST' });
+        await sendChanges(cartId, 'SET', [{ productId, quantity: 0 }]);
     }
 
     // Оптимизировать корзину
@@ -78,7 +88,7 @@ export function Cart() {
             {!cartItems.length && <div>Корзина пуста.</div>}
             {cartItems.map(({ product, quantity }) => (
                 <div key={product.id} style={{ borderBottom: "1px solid #ddd", marginBottom: 10 }}>
-                    <b>{product.title}</b> — {product.shop} — {product.getCurrentPrice}₽ × {quantity}
+                    <b>{product.title}</b> — {product.shop} — {product.currentPrice}₽ × {quantity}
                     <button onClick={() => removeProduct(product.id)} style={{ marginLeft: 10 }}>Удалить</button>
                 </div>
             ))}
@@ -91,6 +101,16 @@ export function Cart() {
                     Заказать Самокат: {result.totalSamokat}₽<br />
                     Заказать Лавка: {result.totalLavka}₽<br />
                     <b>Рекомендация: {result.recommendedShop}!</b>
+                    {result.split && (
+                        <div style={{ marginTop: 10 }}>
+                            <b>Выгоднее разделить заказ: {result.optimalTotal}₽</b>
+                            {(result.shops || []).map(order => (
+                                <div key={order.shop}>
+                                    {order.shop}: {order.itemsTotal}₽ + доставка {order.deliveryFee}₽
+                                </div>
+                            ))}
+                        </div>
+                    )}
                 </div>
             )}
         </div>
@@ -0,0 +1,18 @@
+package org.example.configuration;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Кэш в памяти процесса (Caffeine, настройки в spring.cache.caffeine.spec).
+ * Записи сбрасываются по событиям сохранения продуктов, TTL лишь страховка.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT = "product";
+    public static final String PRODUCT_STATS = "productStats";
+    public static final String PARSING_STATS = "parsingStats";
+}
@@ -0,0 +1,45 @@
+package org.example.configuration;
+
+import lombok.Data;
+import org.example.entity.Shop;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки обхода каталогов магазинов (app.crawl.*).
+ * Адреса каталогов задаются конфигурацией, поэтому обход можно направить на локальные статические страницы.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.crawl")
+public class CrawlProperties {
+
+    private boolean enabled = true;
+    // Окно, за которое обходится каталог; что не успели - остается в очереди на следующий запуск
+    private Duration window = Duration.ofHours(2);
+    private Duration recrawlInterval = Duration.ofHours(2);
+    private Duration discoveryInterval = Duration.ofHours(24);
+    private Map<Shop, ShopCrawl> shops = new HashMap<>();
+
+    public ShopCrawl forShop(Shop shop) {
+        return shops.getOrDefault(shop, new ShopCrawl());
+    }
+
+    @Data
+    public static class ShopCrawl {
+        // Страница, на которой ищутся ссылки на категории (null - только категория парсера по умолчанию)
+        private String catalogUrl;
+        // Регулярное выражение для пути ссылки на категорию
+        private String categoryPath;
+        // Сколько категорий магазина обходится одновременно
+        private int concurrency = 1;
+        // Минимальный интервал между загрузками страниц одного магазина
+        private Duration politenessDelay = Duration.ofSeconds(2);
+        // Ограничение числа категорий (0 - без ограничения)
+        private int maxCategories;
+    }
+}
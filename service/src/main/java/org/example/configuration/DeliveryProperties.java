@@ -0,0 +1,32 @@
+package org.example.configuration;
+
+import lombok.Data;
+import org.example.entity.Shop;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Условия доставки магазинов: стоимость и порог бесплатной доставки (app.delivery.shops.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.delivery")
+public class DeliveryProperties {
+
+    private Map<Shop, ShopDelivery> shops = new HashMap<>();
+
+    public ShopDelivery forShop(Shop shop) {
+        return shops.getOrDefault(shop, new ShopDelivery());
+    }
+
+    @Data
+    public static class ShopDelivery {
+        private BigDecimal fee = BigDecimal.ZERO;
+        // Сумма заказа, начиная с которой доставка бесплатна (null - всегда платная)
+        private BigDecimal freeFrom;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.configuration;
+
+import lombok.Data;
+import org.example.entity.Shop;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Парсинг каталога через JSON API магазина без браузера (app.http-scraping.*).
+ * Поля товара задаются JSON Pointer'ами относительно элемента массива товаров,
+ * поэтому backend можно направить на локальную заглушку с записанными ответами.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.http-scraping")
+public class HttpScrapingProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    // Сколько страниц категории запрашивается одновременно (по одному HTTP/2 соединению)
+    private int maxConcurrentRequests = 4;
+    private Map<Shop, ShopApi> shops = new HashMap<>();
+
+    public ShopApi forShop(Shop shop) {
+        return shops.get(shop);
+    }
+
+    @Data
+    public static class ShopApi {
+        private boolean enabled;
+        // Адрес страницы категории: {category} - последний сегмент пути категории, {offset}, {limit}, {page}
+        private String urlTemplate;
+        private Map<String, String> headers = new HashMap<>();
+        private int pageSize = 100;
+        private int maxPages = 50;
+        // Массив товаров и (необязательно) общее число товаров в ответе
+        private String itemsPointer = "/products";
+        private String totalPointer;
+        private String titlePointer = "/name";
+        private String refPointer = "/url";
+        // Префикс для относительных ссылок на товар
+        private String refPrefix = "";
+        private String volumePointer;
+        private String pricePointer = "/price";
+        private String oldPricePointer;
+        // Сдвиг запятой для числовых цен: 2 - цены в копейках
+        private int priceScale;
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.http.HttpClient;
+
+@Configuration
+@EnableScheduling
+public class ParsingConfig {
+
+    /**
+     * Пул заданий парсинга: задание ждет магазины из parsingExecutor, поэтому потоков нужно немного.
+     * Очередь ограничена - лишние запуски отклоняются, а не копятся.
+     */
+    @Bean(name = "parsingJobExecutor")
+    public ThreadPoolTaskExecutor parsingJobExecutor(@Value("${app.parsing.jobs.threads:2}") int threads,
+                                                     @Value("${app.parsing.jobs.queue-capacity:4}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("parsing-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Отдельный ограниченный пул потоков для парсеров магазинов,
+     * чтобы парсинг не занимал общие потоки приложения.
+     */
+    @Bean(name = "parsingExecutor")
+    public ThreadPoolTaskExecutor parsingExecutor(@Value("${app.parsing.executor.threads:4}") int threads,
+                                                  @Value("${app.parsing.executor.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("parsing-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Пул для обхода категорий: в нем работают воркеры магазинов, пока задачи парсинга магазинов ждут их в parsingExecutor.
+     * Реальное число одновременно открытых страниц все равно ограничено пулом браузеров.
+     */
+    @Bean(name = "crawlExecutor")
+    public ThreadPoolTaskExecutor crawlExecutor(@Value("${app.crawl.executor.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("crawl-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Потребители потоков сохранения: по одному на парсящуюся категорию.
+     * Очереди нет - без свободного потока пачки сохраняются прямо в потоке парсера, а не ждут в очереди,
+     * чтобы парсер с занятым браузером не блокировался на потребителе, который еще не запущен.
+     */
+    @Bean(name = "ingestionExecutor")
+    public ThreadPoolTaskExecutor ingestionExecutor(@Value("${app.ingestion.stream.consumers:8}") int consumers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(consumers);
+        executor.setMaxPoolSize(consumers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("ingestion-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Один поток пересчета сопоставлений товаров: потоки сохранения не ждут его и не блокируют друг друга.
+     * В очереди не больше одного пересчета - новые изменения объединяются с уже запланированным.
+     */
+    @Bean(name = "matchingExecutor")
+    public ThreadPoolTaskExecutor matchingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("matching-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Общий HTTP-клиент парсеров JSON API: HTTP/2 и переиспользование соединений между запросами
+     */
+    @Bean(name = "scrapingHttpClient")
+    public HttpClient scrapingHttpClient(HttpScrapingProperties properties) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+}
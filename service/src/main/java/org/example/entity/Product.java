@@ -1,11 +1,15 @@
 package org.example.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.example.entity.Shop;
+import org.example.util.Money;
+import org.example.util.PriceParser;
+import org.example.util.ProductFingerprint;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -25,17 +29,22 @@ public class Product {
     @Column(nullable = false)
     private String title;
 
-    @Column(name = "old_price")
-    private String oldPriceStr;  // Храним как строку из парсера
+    // Внутренние поля в JSON не попадают: API отдает цены в рублях (getCurrentPrice, getOldPrice, getNewPrice)
+    @Transient
+    @JsonIgnore
+    private String oldPriceStr;  // Цена как ее отдал парсер, в БД не хранится
 
-    @Column(name = "new_price")
-    private String newPriceStr;  // Храним как строку из парсера
+    @Transient
+    @JsonIgnore
+    private String newPriceStr;  // Цена как ее отдал парсер, в БД не хранится
 
-    @Column(name = "old_price_decimal", precision = 10, scale = 2)
-    private BigDecimal oldPrice; // Преобразованная цена для расчетов
+    @Column(name = "old_price_kopecks")
+    @JsonIgnore
+    private Long oldPriceKopecks; // Старая (основная) цена в копейках
 
-    @Column(name = "new_price_decimal", precision = 10, scale = 2)
-    private BigDecimal newPrice; // Преобразованная цена для расчетов
+    @Column(name = "new_price_kopecks")
+    @JsonIgnore
+    private Long newPriceKopecks; // Новая (текущая) цена в копейках
 
     private String volume;
 
@@ -48,53 +57,44 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Column(name = "content_hash")
+    @JsonIgnore
+    private Long contentHash; // Отпечаток содержимого для пропуска неизмененных товаров
+
     @PrePersist
     @PreUpdate
     public void preUpdate() {
         updatedAt = LocalDateTime.now();
-        // Автоматически преобразуем строковые цены в BigDecimal
+        // Автоматически преобразуем строковые цены в копейки
         convertPrices();
+        contentHash = ProductFingerprint.of(this);
     }
 
-    private void convertPrices() {
+    public void convertPrices() {
         if (oldPriceStr != null && !oldPriceStr.isEmpty()) {
-            oldPrice = parsePrice(oldPriceStr);
+            oldPriceKopecks = PriceParser.parseKopecks(oldPriceStr);
         }
         if (newPriceStr != null && !newPriceStr.isEmpty()) {
-            newPrice = parsePrice(newPriceStr);
+            newPriceKopecks = PriceParser.parseKopecks(newPriceStr);
         }
     }
 
-    private BigDecimal parsePrice(String priceStr) {
-        try {
-            // Убираем все символы кроме цифр и точки/запятой
-            String cleanPrice = priceStr.replaceAll("[^0-9.,]", "")
-                    .replace(",", ".");
-            return new BigDecimal(cleanPrice);
-        } catch (NumberFormatException e) {
-            return null;
-        }
+    // Актуальная цена в копейках: со скидкой, если она есть
+    @JsonIgnore
+    public Long getCurrentPriceKopecks() {
+        return newPriceKopecks != null ? newPriceKopecks : oldPriceKopecks;
     }
 
-    // Метод для получения актуальной цены
+    // Цены в рублях для API
     public BigDecimal getCurrentPrice() {
-        return newPrice != null ? newPrice : oldPrice;
-    }
-
-    // Для совместимости с вашим кодом
-    public String getOldPrice() {
-        return oldPriceStr;
-    }
-
-    public String getNewPrice() {
-        return newPriceStr;
+        return Money.toRublesOrNull(getCurrentPriceKopecks());
     }
 
-    public void setOldPrice(String oldPrice) {
-        this.oldPriceStr = oldPrice;
+    public BigDecimal getOldPrice() {
+        return Money.toRublesOrNull(oldPriceKopecks);
     }
 
-    public void setNewPrice(String newPrice) {
-        this.newPriceStr = newPrice;
+    public BigDecimal getNewPrice() {
+        return Money.toRublesOrNull(newPriceKopecks);
     }
-}
\ No newline at end of file
+}
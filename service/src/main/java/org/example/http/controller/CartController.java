@@ -5,11 +5,17 @@ import org.example.entity.Cart;
 import org.example.entity.Product;
 import org.example.service.CartService;
 import org.example.service.CartService.BasketOptimizationResult;
+import org.example.service.CartService.CartChangeResult;
+import org.example.service.CartService.CartChanges;
+import org.example.service.CartService.CartItemChange;
+import org.example.service.CartService.CartView;
+import org.example.service.CartService.ChangeMode;
 import org.example.service.ProductService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -20,24 +26,30 @@ public class CartController {
     private final ProductService productService;
 
     @PostMapping("/create")
-    public ResponseEntity<Cart> createCart() {
-        Cart cart = Cart.builder().items(new ArrayList<>()).build();
-        return ResponseEntity.ok(cartService.saveCart(cart));
+    public ResponseEntity<CartView> createCart() {
+        Cart cart = cartService.saveCart(Cart.builder().items(new ArrayList<>()).build());
+        return ResponseEntity.ok(new CartView(cart.getId(), List.of()));
     }
     @GetMapping("/{cartId}")
-    public ResponseEntity<Cart> getCart(@PathVariable Long cartId) {
+    public ResponseEntity<CartView> getCart(@PathVariable Long cartId) {
         return ResponseEntity.ok(cartService.getCart(cartId));
     }
 
     @PostMapping("/{cartId}/add")
-    public ResponseEntity<Cart> addProduct(@PathVariable Long cartId, @RequestParam Long productId, @RequestParam int quantity) {
+    public ResponseEntity<CartView> addProduct(@PathVariable Long cartId, @RequestParam Long productId, @RequestParam int quantity) {
         Product product = productService.getProductById(productId);
-        return ResponseEntity.ok(cartService.addProduct(cartId, product, quantity));
+        cartService.applyChanges(cartId, new CartChanges(ChangeMode.ADD, List.of(new CartItemChange(product.getId(), quantity))));
+        return ResponseEntity.ok(cartService.getCart(cartId));
+    }
+
+    // Пакетное изменение корзины одним запросом: {"mode": "ADD" | "SET", "items": [{"productId": 1, "quantity": 2}]}
+    @PostMapping("/{cartId}/items")
+    public ResponseEntity<CartChangeResult> applyChanges(@PathVariable Long cartId, @RequestBody CartChanges changes) {
+        return ResponseEntity.ok(cartService.applyChanges(cartId, changes));
     }
 
     @GetMapping("/{cartId}/optimize")
     public ResponseEntity<BasketOptimizationResult> optimizeCart(@PathVariable Long cartId) {
-        Cart cart = cartService.getCart(cartId);
-        return ResponseEntity.ok(cartService.optimizeCart(cart));
+        return ResponseEntity.ok(cartService.optimizeCart(cartId));
     }
 }
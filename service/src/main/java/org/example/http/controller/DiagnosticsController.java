@@ -0,0 +1,36 @@
+package org.example.http.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.util.QueryCounter;
+import org.example.util.QueryCounter.EndpointStats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Диагностика для нагрузочных прогонов; доступна только при app.diagnostics.query-count.enabled=true
+ */
+@RestController
+@RequestMapping("/api/diagnostics")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.diagnostics.query-count.enabled", havingValue = "true")
+public class DiagnosticsController {
+
+    private final QueryCounter queryCounter;
+
+    /**
+     * Число SQL-запросов по эндпоинтам с момента запуска или сброса
+     */
+    @GetMapping("/queries")
+    public ResponseEntity<List<EndpointStats>> getQueryCounts() {
+        return ResponseEntity.ok(queryCounter.getStats());
+    }
+
+    @DeleteMapping("/queries")
+    public ResponseEntity<Void> resetQueryCounts() {
+        queryCounter.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,12 +2,23 @@ package org.example.http.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Shop;
+import org.example.repository.CrawlFrontierRepository.FrontierEntry;
+import org.example.service.CrawlService;
 import org.example.service.IntegratedParsingService;
+import org.example.service.ParsingJobService;
+import org.example.service.ParsingJobService.JobTrigger;
+import org.example.service.ParsingJobService.JobView;
+import org.example.service.ParsingRunService;
+import org.example.service.ParsingRunService.RunView;
+import org.example.util.WebDriverPool;
+import org.example.util.WebDriverPool.PoolStats;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.example.service.IntegratedParsingService.*;
@@ -20,6 +31,10 @@ import static org.example.service.IntegratedParsingService.*;
 public class ParsingController {
 
     private final IntegratedParsingService parsingService;
+    private final WebDriverPool driverPool;
+    private final CrawlService crawlService;
+    private final ParsingJobService jobService;
+    private final ParsingRunService runService;
 
     /**
      * Получение статистики парсинга
@@ -31,78 +46,88 @@ public class ParsingController {
     }
 
     /**
-     * Запуск парсинга всех магазинов
+     * Метрики пула браузеров (ожидание, живые сессии, пересоздания)
      */
-    @PostMapping("/run-all")
-    public ResponseEntity<Map<String, String>> runFullParsing() {
-        try {
-            log.info("Manual parsing triggered from API");
-            parsingService.parseAllShops();
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Full parsing completed successfully");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error in manual parsing", e);
+    @GetMapping("/driver-pool")
+    public ResponseEntity<PoolStats> getDriverPoolStats() {
+        return ResponseEntity.ok(driverPool.getStats());
+    }
 
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "error");
-            response.put("message", "Parsing failed: " + e.getMessage());
+    /**
+     * Фронтир обхода магазина: категории, приоритеты, время последнего и следующего обхода
+     */
+    @GetMapping("/frontier")
+    public ResponseEntity<List<FrontierEntry>> getFrontier(@RequestParam Shop shop) {
+        return ResponseEntity.ok(crawlService.getFrontier(shop));
+    }
 
-            return ResponseEntity.badRequest().body(response);
-        }
+    /**
+     * Запуск парсинга всех магазинов в фоне; ход работы - GET /jobs/{id}
+     */
+    @PostMapping("/run-all")
+    public ResponseEntity<JobView> runFullParsing() {
+        log.info("Manual parsing triggered from API");
+        return ResponseEntity.accepted().body(jobService.submit(parsingService.getShops(), JobTrigger.API));
     }
 
     /**
      * Запуск парсинга только Лавки
      */
     @PostMapping("/run-lavka")
-    public ResponseEntity<Map<String, String>> runLavkaParsing() {
-        try {
-            log.info("Lavka parsing triggered from API");
-            parsingService.parseLavkaAsync();
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Lavka parsing started (async)");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error starting Lavka parsing", e);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "error");
-            response.put("message", "Failed to start Lavka parsing: " + e.getMessage());
-
-            return ResponseEntity.badRequest().body(response);
-        }
+    public ResponseEntity<JobView> runLavkaParsing() {
+        log.info("Lavka parsing triggered from API");
+        return ResponseEntity.accepted().body(jobService.submit(List.of(Shop.LAVKA), JobTrigger.API));
     }
 
     /**
      * Запуск парсинга только Самоката
      */
     @PostMapping("/run-samokat")
-    public ResponseEntity<Map<String, String>> runSamokatParsing() {
-        try {
-            log.info("Samokat parsing triggered from API");
-            parsingService.parseSamokatAsync();
+    public ResponseEntity<JobView> runSamokatParsing() {
+        log.info("Samokat parsing triggered from API");
+        return ResponseEntity.accepted().body(jobService.submit(List.of(Shop.SAMOKAT), JobTrigger.API));
+    }
 
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Samokat parsing started (async)");
+    /**
+     * Последние задания парсинга
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<List<JobView>> getJobs() {
+        return ResponseEntity.ok(jobService.getJobs());
+    }
 
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error starting Samokat parsing", e);
+    /**
+     * Состояние задания: статус, ход по магазинам, итог
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobView> getJob(@PathVariable String id) {
+        return ResponseEntity.of(jobService.getJob(id));
+    }
 
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "error");
-            response.put("message", "Failed to start Samokat parsing: " + e.getMessage());
+    /**
+     * Отмена задания
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<JobView> cancelJob(@PathVariable String id) {
+        return ResponseEntity.of(jobService.cancel(id));
+    }
 
-            return ResponseEntity.badRequest().body(response);
-        }
+    /**
+     * Последние прогоны парсинга магазинов (итоги по фазам без хронологии)
+     */
+    @GetMapping("/runs")
+    public ResponseEntity<List<RunView>> getRuns(@RequestParam(required = false) Shop shop,
+                                                 @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(runService.getRuns(shop, limit));
+    }
+
+    /**
+     * Профиль прогона: фазы, хронология отрезков и сравнение с предыдущими прогонами магазина.
+     * Пример: /api/parsing/runs/{id}?spans=false - без хронологии
+     */
+    @GetMapping("/runs/{id}")
+    public ResponseEntity<RunView> getRun(@PathVariable String id, @RequestParam(defaultValue = "true") boolean spans) {
+        return ResponseEntity.of(runService.getRun(id, spans));
     }
 
     /**
@@ -2,14 +2,23 @@ package org.example.http.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.PriceHistoryRepository.PricePoint;
+import org.example.repository.PriceHistoryRepository.PriceStats;
+import org.example.repository.ProductMatchRepository.Match;
+import org.example.service.PriceHistoryService;
+import org.example.service.ProductMatchingService;
 import org.example.service.ProductService;
 import org.example.service.ProductService.ProductComparison;
 import org.example.service.ProductService.ProductStats;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +28,8 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final PriceHistoryService priceHistoryService;
+    private final ProductMatchingService productMatchingService;
 
     /**
      * Получить все продукты (отсортированные по title).
@@ -30,10 +41,15 @@ public class ProductController {
 
     /**
      * Получить продукты с пагинацией.
-     * Пример: /api/products/pageable?page=0&size=20
+     * Пример: /api/products/pageable?page=0&size=20&sort=title
+     * Keyset-режим: /api/products/pageable?after=<title,id>&size=20 (after= пустой - первая страница),
+     * курсор следующей страницы приходит в nextCursor.
      */
     @GetMapping("/pageable")
-    public ResponseEntity<Page<Product>> getProductsWithPagination(Pageable pageable) {
+    public ResponseEntity<?> getProductsWithPagination(Pageable pageable, @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(productService.getProductsAfter(after, pageable.getPageSize()));
+        }
         return ResponseEntity.ok(productService.getProductsWithPagination(pageable));
     }
 
@@ -46,11 +62,16 @@ public class ProductController {
     }
 
     /**
-     * Поиск продуктов по названию (GET /api/products/search?query=молоко).
+     * Поиск продуктов с ранжированием и учетом опечаток.
+     * Пример: /api/products/search?query=вода святой источник&shop=LAVKA&minPrice=50&maxPrice=150&page=0&size=20
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String query) {
-        return ResponseEntity.ok(productService.searchProducts(query));
+    public ResponseEntity<Page<Product>> searchProducts(@RequestParam(required = false) String query,
+                                                        @RequestParam(required = false) Shop shop,
+                                                        @RequestParam(required = false) BigDecimal minPrice,
+                                                        @RequestParam(required = false) BigDecimal maxPrice,
+                                                        Pageable pageable) {
+        return ResponseEntity.ok(productService.searchProducts(query, shop, minPrice, maxPrice, pageable));
     }
 
     /**
@@ -63,9 +84,53 @@ public class ProductController {
 
     /**
      * Получить сопоставление товаров для сравнения цен (только похожие из обоих магазинов).
+     * Без параметров возвращает все пары, с page/size - только нужную страницу.
      */
     @GetMapping("/comparison")
-    public ResponseEntity<List<ProductComparison>> getProductsForComparison() {
-        return ResponseEntity.ok(productService.getProductsForComparison());
+    public ResponseEntity<List<ProductComparison>> getProductsForComparison(@RequestParam(required = false) Integer page,
+                                                                            @RequestParam(defaultValue = "20") int size) {
+        if (page == null) {
+            return ResponseEntity.ok(productService.getProductsForComparison());
+        }
+        return ResponseEntity.ok(productService.getProductsForComparison(page, size));
+    }
+
+    /**
+     * Тот же товар в других магазинах (GET /api/products/42/matches).
+     */
+    @GetMapping("/{id}/matches")
+    public ResponseEntity<List<Match>> getMatches(@PathVariable Long id) {
+        return ResponseEntity.ok(productMatchingService.findMatches(List.of(id)).getOrDefault(id, List.of()));
+    }
+
+    /**
+     * История цен товара за период (по умолчанию последние 30 дней).
+     * Пример: /api/products/42/history?from=2025-01-01T00:00:00&to=2025-02-01T00:00:00
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<PricePoint>> getPriceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(priceHistoryService.getHistory(id, from, to));
+    }
+
+    /**
+     * Минимальная, максимальная и средняя цена товара за период.
+     */
+    @GetMapping("/{id}/history/stats")
+    public ResponseEntity<PriceStats> getPriceHistoryStats(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(priceHistoryService.getStats(id, from, to));
+    }
+
+    /**
+     * Самая низкая цена товара за последние N дней (GET /api/products/42/history/lowest?days=30).
+     */
+    @GetMapping("/{id}/history/lowest")
+    public ResponseEntity<PricePoint> getLowestPrice(@PathVariable Long id, @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.of(priceHistoryService.getLowest(id, days));
     }
 }
@@ -0,0 +1,60 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Shop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Данные для оптимизации корзины: каждая позиция вместе с сопоставленными товарами других магазинов.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BasketRepository {
+
+    // Сама позиция и ее эквиваленты из product_matches разворачиваются через LATERAL, все одним запросом
+    private static final String OPTIONS_SQL = """
+            SELECT ci.product_id AS cart_product_id, ci.quantity,
+                   p.id, p.shop, p.title, COALESCE(p.new_price_kopecks, p.old_price_kopecks) AS price_kopecks
+            FROM carts c
+            LEFT JOIN cart_items ci ON ci.cart_id = c.id
+            LEFT JOIN LATERAL (
+                SELECT ci.product_id AS product_id
+                UNION ALL
+                SELECT m.matched_product_id FROM product_matches m WHERE m.product_id = ci.product_id
+            ) candidate ON true
+            LEFT JOIN products p ON p.id = candidate.product_id
+            WHERE c.id = ?
+            ORDER BY ci.id
+            """;
+
+    private static final RowMapper<OptionRow> OPTION_MAPPER = (rs, rowNum) -> {
+        long cartProductId = rs.getLong("cart_product_id");
+        if (rs.wasNull()) {
+            return new OptionRow(null, 0, null, null, null, null);
+        }
+        long productId = rs.getLong("id");
+        Long optionId = rs.wasNull() ? null : productId;
+        String shop = rs.getString("shop");
+        return new OptionRow(cartProductId, rs.getInt("quantity"), optionId,
+                shop == null ? null : Shop.valueOf(shop),
+                rs.getString("title"),
+                rs.getObject("price_kopecks", Long.class));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Варианты покупки для всех позиций корзины; пустой список - корзины нет,
+     * строка с cartProductId = null - корзина пуста
+     */
+    public List<OptionRow> findOptions(long cartId) {
+        return jdbcTemplate.query(OPTIONS_SQL, OPTION_MAPPER, cartId);
+    }
+
+    public record OptionRow(Long cartProductId, int quantity, Long productId, Shop shop, String title, Long priceKopecks) {
+    }
+}
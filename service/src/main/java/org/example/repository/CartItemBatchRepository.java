@@ -0,0 +1,118 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Пакетное изменение позиций корзины через JDBC, опираясь на UNIQUE (cart_id, product_id).
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartItemBatchRepository {
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO cart_items (cart_id, product_id, quantity) SELECT ?, v.product_id, v.quantity FROM (VALUES ";
+
+    private static final String ROW_PLACEHOLDER = "(?::bigint, ?::integer)";
+
+    // Несуществующие товары отбрасываются фильтром, а не ошибкой внешнего ключа
+    private static final String SET_SUFFIX = """
+            ) AS v (product_id, quantity)
+            WHERE EXISTS (SELECT 1 FROM products p WHERE p.id = v.product_id)
+            ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity
+            RETURNING product_id, (xmax = 0) AS inserted
+            """;
+
+    // Прибавление выполняется в самой строке под ее блокировкой, поэтому параллельные добавления не теряются
+    private static final String ADD_SUFFIX = """
+            ) AS v (product_id, quantity)
+            WHERE EXISTS (SELECT 1 FROM products p WHERE p.id = v.product_id)
+            ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity
+            RETURNING product_id, (xmax = 0) AS inserted
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Установка количества товаров в корзине одним многострочным INSERT ... ON CONFLICT DO UPDATE.
+     * Количества должны быть положительными. Возвращает записанные товары: true - вставлен, false - обновлен.
+     */
+    public Map<Long, Boolean> upsertQuantities(long cartId, Map<Long, Integer> quantities) {
+        return upsert(cartId, quantities, SET_SUFFIX);
+    }
+
+    /**
+     * Прибавление положительных количеств к позициям корзины (отсутствующие позиции вставляются) одним запросом.
+     * Возвращает записанные товары: true - вставлен, false - обновлен.
+     */
+    public Map<Long, Boolean> addQuantities(long cartId, Map<Long, Integer> deltas) {
+        return upsert(cartId, deltas, ADD_SUFFIX);
+    }
+
+    /**
+     * Текущие количества позиций с блокировкой строк до конца транзакции
+     */
+    public Map<Long, Integer> lockQuantities(long cartId, Collection<Long> productIds) {
+        Map<Long, Integer> quantities = new HashMap<>(productIds.size() * 2);
+        if (productIds.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT product_id, quantity FROM cart_items WHERE cart_id = ? AND product_id = ANY (?) FOR UPDATE");
+            ps.setLong(1, cartId);
+            ps.setArray(2, con.createArrayOf("bigint", productIds.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> quantities.put(rs.getLong(1), rs.getInt(2)));
+        return quantities;
+    }
+
+    private Map<Long, Boolean> upsert(long cartId, Map<Long, Integer> quantities, String suffix) {
+        Map<Long, Boolean> written = new HashMap<>(quantities.size() * 2);
+        if (quantities.isEmpty()) {
+            return written;
+        }
+
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + quantities.size() * (ROW_PLACEHOLDER.length() + 2) + suffix.length());
+        sql.append(UPSERT_PREFIX);
+        for (int i = 0; i < quantities.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        sql.append(suffix);
+
+        jdbcTemplate.query(sql.toString(), ps -> {
+            int index = 1;
+            ps.setLong(index++, cartId);
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                ps.setLong(index++, entry.getKey());
+                ps.setInt(index++, entry.getValue());
+            }
+        }, (RowCallbackHandler) rs -> written.put(rs.getLong(1), rs.getBoolean(2)));
+        return written;
+    }
+
+    /**
+     * Удаление товаров из корзины одним запросом
+     */
+    public int deleteProducts(long cartId, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM cart_items WHERE cart_id = ? AND product_id = ANY (?)");
+            ps.setLong(1, cartId);
+            ps.setArray(2, con.createArrayOf("bigint", productIds.toArray()));
+            return ps;
+        });
+    }
+}
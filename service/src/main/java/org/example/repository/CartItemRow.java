@@ -0,0 +1,16 @@
+package org.example.repository;
+
+import org.example.entity.Shop;
+
+/**
+ * Строка корзины для чтения: позиция и нужные поля товара без загрузки сущностей.
+ * Для пустой корзины приходит одна строка с itemId = null.
+ */
+public record CartItemRow(Long cartId, Long itemId, Integer quantity,
+                          Long productId, String title, Shop shop, String volume,
+                          Long oldPriceKopecks, Long newPriceKopecks) {
+
+    public Long currentPriceKopecks() {
+        return newPriceKopecks != null ? newPriceKopecks : oldPriceKopecks;
+    }
+}
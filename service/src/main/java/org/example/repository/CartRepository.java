@@ -2,7 +2,20 @@ package org.example.repository;
 
 import org.example.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     // Можно добавить userId, если понадобится
-}
\ No newline at end of file
+
+    // Позиции корзины с полями товаров одним запросом (пустой список - корзины нет)
+    @Query("""
+            SELECT new org.example.repository.CartItemRow(c.id, i.id, i.quantity, p.id, p.title, p.shop, p.volume, p.oldPriceKopecks, p.newPriceKopecks)
+            FROM Cart c LEFT JOIN c.items i LEFT JOIN i.product p
+            WHERE c.id = :id
+            ORDER BY i.id
+            """)
+    List<CartItemRow> findItemRows(@Param("id") Long id);
+}
@@ -0,0 +1,111 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Shop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Фронтир обхода: категории магазинов с приоритетом и временем последнего/следующего обхода.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CrawlFrontierRepository {
+
+    private static final RowMapper<FrontierEntry> ENTRY_MAPPER = (rs, rowNum) -> {
+        Timestamp lastCrawledAt = rs.getTimestamp("last_crawled_at");
+        int lastProducts = rs.getInt("last_products");
+        Integer products = rs.wasNull() ? null : lastProducts;
+        return new FrontierEntry(
+                rs.getLong("id"),
+                Shop.valueOf(rs.getString("shop")),
+                rs.getString("url"),
+                rs.getInt("priority"),
+                lastCrawledAt == null ? null : lastCrawledAt.toLocalDateTime(),
+                rs.getTimestamp("next_crawl_at").toLocalDateTime(),
+                rs.getString("last_status"),
+                products,
+                rs.getInt("failures"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавление найденных категорий к обходу с nextCrawlAt; уже известные адреса не трогаются
+     */
+    public int addAll(Shop shop, Collection<String> urls, LocalDateTime nextCrawlAt) {
+        if (urls.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO crawl_frontier (shop, url, next_crawl_at) VALUES (?, ?, ?) ON CONFLICT (url) DO NOTHING",
+                urls, urls.size(), (ps, url) -> {
+                    ps.setString(1, shop.name());
+                    ps.setString(2, url);
+                    ps.setTimestamp(3, Timestamp.valueOf(nextCrawlAt));
+                });
+        int added = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                added += Math.max(count, 0);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Категории, которые пора обходить: сначала с большим приоритетом, затем давно не обходившиеся
+     */
+    public List<FrontierEntry> findDue(Shop shop, LocalDateTime now, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT * FROM crawl_frontier
+                        WHERE shop = ? AND next_crawl_at <= ?
+                        ORDER BY priority DESC, last_crawled_at NULLS FIRST, id
+                        LIMIT ?
+                        """,
+                ENTRY_MAPPER, shop.name(), Timestamp.valueOf(now), limit);
+    }
+
+    public List<FrontierEntry> findByShop(Shop shop) {
+        return jdbcTemplate.query("SELECT * FROM crawl_frontier WHERE shop = ? ORDER BY priority DESC, url",
+                ENTRY_MAPPER, shop.name());
+    }
+
+    public long countByShop(Shop shop) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crawl_frontier WHERE shop = ?", Long.class, shop.name());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Успешный обход: приоритет - число изменившихся товаров, счетчик ошибок сбрасывается
+     */
+    public void markCrawled(long id, LocalDateTime crawledAt, LocalDateTime nextCrawlAt, int products, int changed) {
+        jdbcTemplate.update("""
+                        UPDATE crawl_frontier
+                        SET last_crawled_at = ?, next_crawl_at = ?, last_status = 'SUCCESS',
+                            last_products = ?, priority = ?, failures = 0
+                        WHERE id = ?
+                        """,
+                Timestamp.valueOf(crawledAt), Timestamp.valueOf(nextCrawlAt), products, changed, id);
+    }
+
+    public void markFailed(long id, LocalDateTime crawledAt, LocalDateTime nextCrawlAt) {
+        jdbcTemplate.update("""
+                        UPDATE crawl_frontier
+                        SET last_crawled_at = ?, next_crawl_at = ?, last_status = 'FAILED', failures = failures + 1
+                        WHERE id = ?
+                        """,
+                Timestamp.valueOf(crawledAt), Timestamp.valueOf(nextCrawlAt), id);
+    }
+
+    public record FrontierEntry(long id, Shop shop, String url, int priority,
+                                LocalDateTime lastCrawledAt, LocalDateTime nextCrawlAt,
+                                String lastStatus, Integer lastProducts, int failures) {
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.util.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * История цен товаров. Таблица секционирована по месяцам (recorded_at),
+ * поэтому запросы за окно времени читают только нужные секции по первичному ключу (product_id, recorded_at).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PriceHistoryRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    private static final RowMapper<PricePoint> POINT_MAPPER = (rs, rowNum) -> new PricePoint(
+            rs.getTimestamp("recorded_at").toLocalDateTime(),
+            Money.toRublesOrNull(rs.getObject("old_price_kopecks", Long.class)),
+            Money.toRublesOrNull(rs.getObject("new_price_kopecks", Long.class)));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создание секции за месяц, если ее еще нет
+     */
+    public void createPartitionIfMissing(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS product_price_history_" + month.format(PARTITION_SUFFIX)
+                + " PARTITION OF product_price_history FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    /**
+     * Пакетная запись точек истории (JDBC batch)
+     */
+    public void insertAll(List<PriceChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO product_price_history (product_id, recorded_at, old_price_kopecks, new_price_kopecks)
+                        VALUES (?, ?, ?, ?)
+                        ON CONFLICT DO NOTHING
+                        """,
+                changes, changes.size(), (ps, change) -> {
+                    ps.setLong(1, change.productId());
+                    ps.setTimestamp(2, Timestamp.valueOf(change.recordedAt()));
+                    ps.setObject(3, change.oldPriceKopecks(), Types.BIGINT);
+                    ps.setObject(4, change.newPriceKopecks(), Types.BIGINT);
+                });
+    }
+
+    /**
+     * Точки истории товара за период, по возрастанию времени
+     */
+    public List<PricePoint> findByProductId(long productId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query("""
+                        SELECT recorded_at, old_price_kopecks, new_price_kopecks
+                        FROM product_price_history
+                        WHERE product_id = ? AND recorded_at >= ? AND recorded_at < ?
+                        ORDER BY recorded_at
+                        """,
+                POINT_MAPPER, productId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Минимальная, максимальная и средняя актуальная цена за период
+     */
+    public PriceStats getStats(long productId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForObject("""
+                        SELECT MIN(COALESCE(new_price_kopecks, old_price_kopecks)) AS min_price,
+                               MAX(COALESCE(new_price_kopecks, old_price_kopecks)) AS max_price,
+                               ROUND(AVG(COALESCE(new_price_kopecks, old_price_kopecks)))::bigint AS avg_price,
+                               COUNT(*) AS points
+                        FROM product_price_history
+                        WHERE product_id = ? AND recorded_at >= ? AND recorded_at < ?
+                        """,
+                (rs, rowNum) -> new PriceStats(from, to,
+                        Money.toRublesOrNull(rs.getObject("min_price", Long.class)),
+                        Money.toRublesOrNull(rs.getObject("max_price", Long.class)),
+                        Money.toRublesOrNull(rs.getObject("avg_price", Long.class)),
+                        rs.getLong("points")),
+                productId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Самая низкая цена начиная с момента since (при равенстве - самая свежая)
+     */
+    public Optional<PricePoint> findLowest(long productId, LocalDateTime since) {
+        return jdbcTemplate.query("""
+                        SELECT recorded_at, old_price_kopecks, new_price_kopecks
+                        FROM product_price_history
+                        WHERE product_id = ? AND recorded_at >= ? AND COALESCE(new_price_kopecks, old_price_kopecks) IS NOT NULL
+                        ORDER BY COALESCE(new_price_kopecks, old_price_kopecks), recorded_at DESC
+                        LIMIT 1
+                        """,
+                POINT_MAPPER, productId, Timestamp.valueOf(since)).stream().findFirst();
+    }
+
+    public record PriceChange(long productId, LocalDateTime recordedAt, Long oldPriceKopecks, Long newPriceKopecks) {
+    }
+
+    // Точки и статистика отдаются в API, поэтому цены в них в рублях
+    public record PricePoint(LocalDateTime recordedAt, BigDecimal oldPrice, BigDecimal newPrice) {
+
+        public BigDecimal getPrice() {
+            return newPrice != null ? newPrice : oldPrice;
+        }
+    }
+
+    public record PriceStats(LocalDateTime from, LocalDateTime to,
+                             BigDecimal minPrice, BigDecimal maxPrice, BigDecimal avgPrice, long points) {
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная запись продуктов через JDBC, минуя поштучные findByRef + save.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBatchRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO products (title, old_price_kopecks, new_price_kopecks, volume, ref, shop, content_hash) VALUES ";
+
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?)";
+
+    // Строка обновляется только если что-то реально изменилось, иначе RETURNING ее не вернет
+    private static final String UPSERT_SUFFIX = """
+             ON CONFLICT (ref) DO UPDATE SET
+                title = EXCLUDED.title,
+                old_price_kopecks = EXCLUDED.old_price_kopecks,
+                new_price_kopecks = EXCLUDED.new_price_kopecks,
+                volume = EXCLUDED.volume,
+                shop = EXCLUDED.shop,
+                content_hash = EXCLUDED.content_hash
+            WHERE products.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+               OR products.shop IS DISTINCT FROM EXCLUDED.shop
+            RETURNING id, ref, (xmax = 0) AS inserted
+            """;
+
+    public static final int PARAMS_PER_ROW = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Upsert пачки продуктов одним многострочным INSERT ... ON CONFLICT (ref) DO UPDATE.
+     * Ссылки (ref) внутри пачки должны быть уникальны.
+     * Вставленным и измененным продуктам проставляется id, они возвращаются в written.
+     */
+    public UpsertResult upsert(List<Product> products) {
+        if (products.isEmpty()) {
+            return new UpsertResult(List.of(), 0, 0, 0);
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + products.size() * (ROW_PLACEHOLDER.length() + 2) + UPSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        sql.append(UPSERT_SUFFIX);
+
+        Map<String, Product> byRef = new HashMap<>(products.size() * 2);
+        products.forEach(product -> byRef.put(product.getRef(), product));
+
+        List<Product> written = new ArrayList<>();
+        int[] insertedCount = new int[1];
+        jdbcTemplate.query(sql.toString(), ps -> {
+            int index = 1;
+            for (Product product : products) {
+                ps.setString(index++, product.getTitle());
+                ps.setObject(index++, product.getOldPriceKopecks(), Types.BIGINT);
+                ps.setObject(index++, product.getNewPriceKopecks(), Types.BIGINT);
+                ps.setString(index++, product.getVolume());
+                ps.setString(index++, product.getRef());
+                ps.setString(index++, product.getShop().name());
+                ps.setLong(index++, product.getContentHash());
+            }
+        }, (RowCallbackHandler) rs -> {
+            Product product = byRef.get(rs.getString(2));
+            product.setId(rs.getLong(1));
+            written.add(product);
+            if (rs.getBoolean(3)) {
+                insertedCount[0]++;
+            }
+        });
+
+        return new UpsertResult(written, insertedCount[0], written.size() - insertedCount[0], products.size() - written.size());
+    }
+
+    /**
+     * Сохраненные отпечатки содержимого и цены по ссылкам (одним запросом на пачку)
+     */
+    public Map<String, StoredState> findStoredStates(Collection<String> refs) {
+        Map<String, StoredState> states = new HashMap<>(refs.size() * 2);
+        if (refs.isEmpty()) {
+            return states;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT ref, content_hash, old_price_kopecks, new_price_kopecks FROM products WHERE ref = ANY (?)");
+            ps.setArray(1, con.createArrayOf("varchar", refs.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long hash = rs.getLong(2);
+            Long contentHash = rs.wasNull() ? null : hash;
+            states.put(rs.getString(1), new StoredState(contentHash, rs.getObject(3, Long.class), rs.getObject(4, Long.class)));
+        });
+        return states;
+    }
+
+    public record StoredState(Long contentHash, Long oldPriceKopecks, Long newPriceKopecks) {
+    }
+
+    public record UpsertResult(List<Product> written, int inserted, int updated, int unchanged) {
+    }
+}
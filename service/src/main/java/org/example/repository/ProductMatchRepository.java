@@ -0,0 +1,97 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сопоставления одинаковых товаров между магазинами
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductMatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Замена сопоставлений для набора товаров: старые пары удаляются, новые вставляются пачкой
+     */
+    public void replaceMatches(Collection<Long> productIds, List<Match> matches) {
+        if (!productIds.isEmpty()) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "DELETE FROM product_matches WHERE product_id = ANY (?) OR matched_product_id = ANY (?)");
+                Array ids = con.createArrayOf("bigint", productIds.toArray());
+                ps.setArray(1, ids);
+                ps.setArray(2, ids);
+                return ps;
+            });
+        }
+
+        List<Match> rows = new ArrayList<>(matches.size() * 2);
+        for (Match match : matches) {
+            rows.add(match);
+            rows.add(new Match(match.matchedProductId(), match.productId(), match.score()));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                            INSERT INTO product_matches (product_id, matched_product_id, score)
+                            VALUES (?, ?, ?)
+                            ON CONFLICT (product_id, matched_product_id) DO UPDATE SET score = EXCLUDED.score, matched_at = CURRENT_TIMESTAMP
+                            """,
+                    rows, rows.size(), (ps, match) -> {
+                        ps.setLong(1, match.productId());
+                        ps.setLong(2, match.matchedProductId());
+                        ps.setFloat(3, (float) match.score());
+                    });
+        }
+    }
+
+    /**
+     * Удаление всех сопоставлений (перед полным пересчетом)
+     */
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM product_matches");
+    }
+
+    /**
+     * Сопоставленные товары для набора товаров
+     */
+    public Map<Long, List<Match>> findByProductIds(Collection<Long> productIds) {
+        Map<Long, List<Match>> result = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return result;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT product_id, matched_product_id, score FROM product_matches WHERE product_id = ANY (?) ORDER BY score DESC");
+            ps.setArray(1, con.createArrayOf("bigint", productIds.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Match match = new Match(rs.getLong(1), rs.getLong(2), rs.getFloat(3));
+            result.computeIfAbsent(match.productId(), id -> new ArrayList<>()).add(match);
+        });
+        return result;
+    }
+
+    /**
+     * Все сопоставления, каждая пара один раз
+     */
+    public List<Match> findAllPairs() {
+        return jdbcTemplate.query(
+                "SELECT product_id, matched_product_id, score FROM product_matches WHERE product_id < matched_product_id",
+                (rs, rowNum) -> new Match(rs.getLong(1), rs.getLong(2), rs.getFloat(3)));
+    }
+
+    public record Match(long productId, long matchedProductId, double score) {
+    }
+}
@@ -29,6 +29,13 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Все продукты, отсортированные по названию
     List<Product> findAllByOrderByTitleAsc();
 
+    // Keyset-пагинация по индексу (title, id): первая страница и страница после курсора
+    @Query(value = "SELECT * FROM products ORDER BY title, id LIMIT :limit", nativeQuery = true)
+    List<Product> findFirstByTitleKeyset(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM products WHERE (title, id) > (:title, :id) ORDER BY title, id LIMIT :limit", nativeQuery = true)
+    List<Product> findAfterByTitleKeyset(@Param("title") String title, @Param("id") long id, @Param("limit") int limit);
+
     // Поиск по объему
     List<Product> findByVolumeContainingIgnoreCase(String volume);
 
@@ -37,7 +44,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findTopByOrderByUpdatedAtDesc();
 
     // Продукты с ценами (исключаем товары без цен)
-    @Query("SELECT p FROM Product p WHERE p.newPrice IS NOT NULL OR p.oldPrice IS NOT NULL ORDER BY p.title")
+    @Query("SELECT p FROM Product p WHERE p.newPriceKopecks IS NOT NULL OR p.oldPriceKopecks IS NOT NULL ORDER BY p.title")
     List<Product> findProductsWithPrices();
 
     // Поиск дубликатов по названию и объему
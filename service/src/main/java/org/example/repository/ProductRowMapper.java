@@ -0,0 +1,36 @@
+package org.example.repository;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Маппинг строки таблицы products в {@link Product} для JDBC-запросов
+ */
+public class ProductRowMapper implements RowMapper<Product> {
+
+    public static final ProductRowMapper INSTANCE = new ProductRowMapper();
+
+    @Override
+    public Product mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        long contentHash = rs.getLong("content_hash");
+        Long storedHash = rs.wasNull() ? null : contentHash;
+
+        return Product.builder()
+                .id(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .oldPriceKopecks(rs.getObject("old_price_kopecks", Long.class))
+                .newPriceKopecks(rs.getObject("new_price_kopecks", Long.class))
+                .volume(rs.getString("volume"))
+                .ref(rs.getString("ref"))
+                .shop(Shop.valueOf(rs.getString("shop")))
+                .updatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime())
+                .contentHash(storedHash)
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Поиск товаров: полнотекстовый (tsvector, русский словарь) плюс триграммный для опечаток.
+ * Оба условия обслуживаются GIN-индексами из db.changelog-1.4.sql.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductSearchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Страница результатов, упорядоченная по релевантности
+     */
+    public List<Product> search(SearchCriteria criteria, int limit, long offset) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT p.* FROM products p");
+        appendWhere(sql, args, criteria);
+
+        if (criteria.hasText()) {
+            sql.append(" ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('russian', ?)) DESC,")
+                    .append(" word_similarity(?, lower(p.title)) DESC, p.title, p.id");
+            args.add(criteria.text());
+            args.add(criteria.text().toLowerCase(Locale.ROOT));
+        } else {
+            sql.append(" ORDER BY p.title, p.id");
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+
+        return jdbcTemplate.query(sql.toString(), ProductRowMapper.INSTANCE, args.toArray());
+    }
+
+    /**
+     * Общее число найденных товаров
+     */
+    public long count(SearchCriteria criteria) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM products p");
+        appendWhere(sql, args, criteria);
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    private void appendWhere(StringBuilder sql, List<Object> args, SearchCriteria criteria) {
+        sql.append(" WHERE TRUE");
+        if (criteria.hasText()) {
+            // Совпадение по словам (со стеммингом) или похожее написание в названии
+            sql.append(" AND (p.search_vector @@ websearch_to_tsquery('russian', ?) OR ? <% lower(p.title))");
+            args.add(criteria.text());
+            args.add(criteria.text().toLowerCase(Locale.ROOT));
+        }
+        if (criteria.shop() != null) {
+            sql.append(" AND p.shop = ?");
+            args.add(criteria.shop().name());
+        }
+        if (criteria.minPrice() != null) {
+            sql.append(" AND COALESCE(p.new_price_kopecks, p.old_price_kopecks) >= ?");
+            args.add(criteria.minPrice());
+        }
+        if (criteria.maxPrice() != null) {
+            sql.append(" AND COALESCE(p.new_price_kopecks, p.old_price_kopecks) <= ?");
+            args.add(criteria.maxPrice());
+        }
+    }
+
+    // Границы цены в копейках
+    public record SearchCriteria(String text, Shop shop, Long minPrice, Long maxPrice) {
+
+        public boolean hasText() {
+            return text != null && !text.isBlank();
+        }
+    }
+}
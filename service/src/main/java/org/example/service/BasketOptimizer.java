@@ -0,0 +1,269 @@
+package org.example.service;
+
+import org.example.configuration.DeliveryProperties;
+import org.example.configuration.DeliveryProperties.ShopDelivery;
+import org.example.entity.Shop;
+import org.example.util.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Поиск самого дешевого распределения корзины по магазинам с учетом стоимости доставки
+ * и порогов бесплатной доставки. Деньги считаются в копейках (long).
+ * Маленькие корзины перебираются точно (с отсечением по нижней границе),
+ * большие - эвристикой: для каждого набора магазинов самое дешевое распределение и локальные улучшения.
+ */
+@Component
+public class BasketOptimizer {
+
+    private static final Shop[] SHOPS = Shop.values();
+    private static final int MAX_LOCAL_SEARCH_PASSES = 20;
+
+    private final long[] fees = new long[SHOPS.length];
+    private final long[] freeFrom = new long[SHOPS.length];
+    private final long exactSearchLimit;
+
+    public BasketOptimizer(DeliveryProperties deliveryProperties,
+                           @Value("${app.basket.exact-search-limit:200000}") long exactSearchLimit) {
+        for (Shop shop : SHOPS) {
+            ShopDelivery delivery = deliveryProperties.forShop(shop);
+            fees[shop.ordinal()] = Money.toKopecks(delivery.getFee());
+            freeFrom[shop.ordinal()] = delivery.getFreeFrom() == null ? Long.MAX_VALUE : Money.toKopecks(delivery.getFreeFrom());
+        }
+        this.exactSearchLimit = exactSearchLimit;
+    }
+
+    /**
+     * Оптимальный (или близкий к нему для больших корзин) план.
+     * У каждой позиции должен быть хотя бы один вариант; null, если корзина пуста.
+     */
+    public Plan optimize(List<BasketItem> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        return searchSpace(items) <= exactSearchLimit ? exactSearch(items) : heuristicSearch(items);
+    }
+
+    /**
+     * План, в котором вся корзина заказывается в одном магазине; null, если там есть не все товары
+     */
+    public Plan singleShop(List<BasketItem> items, Shop shop) {
+        return cheapestWithin(items, 1 << shop.ordinal());
+    }
+
+    public long deliveryFee(int shop, long subtotal) {
+        if (subtotal == 0 || subtotal >= freeFrom[shop]) {
+            return 0;
+        }
+        return fees[shop];
+    }
+
+    private long searchSpace(List<BasketItem> items) {
+        long space = 1;
+        for (BasketItem item : items) {
+            space *= Math.max(1, item.options().size());
+            if (space > exactSearchLimit) {
+                return space;
+            }
+        }
+        return space;
+    }
+
+    // --- Точный перебор ---
+
+    private Plan exactSearch(List<BasketItem> items) {
+        int n = items.size();
+        long[] remainingMin = new long[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            long min = Long.MAX_VALUE;
+            for (ItemOption option : items.get(i).options()) {
+                min = Math.min(min, lineCost(items.get(i), option));
+            }
+            remainingMin[i] = remainingMin[i + 1] + min;
+        }
+
+        ExactState state = new ExactState(n);
+        dfs(items, 0, 0, remainingMin, state);
+        return plan(items, state.bestChoice);
+    }
+
+    private void dfs(List<BasketItem> items, int index, long cost, long[] remainingMin, ExactState state) {
+        // Доставка не бывает отрицательной, поэтому cost + минимум оставшихся - нижняя граница
+        if (cost + remainingMin[index] >= state.bestTotal) {
+            return;
+        }
+        if (index == items.size()) {
+            long total = cost + totalFees(state.subtotals);
+            if (total < state.bestTotal) {
+                state.bestTotal = total;
+                System.arraycopy(state.choice, 0, state.bestChoice, 0, state.choice.length);
+            }
+            return;
+        }
+
+        BasketItem item = items.get(index);
+        for (int o = 0; o < item.options().size(); o++) {
+            ItemOption option = item.options().get(o);
+            long line = lineCost(item, option);
+            int shop = option.shop().ordinal();
+            state.subtotals[shop] += line;
+            state.choice[index] = o;
+            dfs(items, index + 1, cost + line, remainingMin, state);
+            state.subtotals[shop] -= line;
+        }
+    }
+
+    // --- Эвристика для больших корзин ---
+
+    private Plan heuristicSearch(List<BasketItem> items) {
+        Plan best = null;
+        for (int mask = 1; mask < (1 << SHOPS.length); mask++) {
+            Plan plan = cheapestWithin(items, mask);
+            if (plan == null) {
+                continue;
+            }
+            plan = improve(items, plan, mask);
+            if (best == null || plan.total() < best.total()) {
+                best = plan;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Каждая позиция - в самый дешевый магазин из набора mask
+     */
+    private Plan cheapestWithin(List<BasketItem> items, int mask) {
+        int[] choice = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            BasketItem item = items.get(i);
+            int bestOption = -1;
+            for (int o = 0; o < item.options().size(); o++) {
+                ItemOption option = item.options().get(o);
+                if ((mask & (1 << option.shop().ordinal())) != 0
+                        && (bestOption < 0 || option.priceKopecks() < item.options().get(bestOption).priceKopecks())) {
+                    bestOption = o;
+                }
+            }
+            if (bestOption < 0) {
+                return null;
+            }
+            choice[i] = bestOption;
+        }
+        return plan(items, choice);
+    }
+
+    /**
+     * Локальный поиск: перенос одной позиции в другой магазин набора, пока это уменьшает итог
+     * (например, чтобы добрать порог бесплатной доставки)
+     */
+    private Plan improve(List<BasketItem> items, Plan plan, int mask) {
+        int[] choice = plan.choice().clone();
+        long[] subtotals = plan.subtotals().clone();
+
+        for (int pass = 0; pass < MAX_LOCAL_SEARCH_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < items.size(); i++) {
+                BasketItem item = items.get(i);
+                ItemOption current = item.options().get(choice[i]);
+                int from = current.shop().ordinal();
+                long currentLine = lineCost(item, current);
+
+                for (int o = 0; o < item.options().size(); o++) {
+                    ItemOption candidate = item.options().get(o);
+                    int to = candidate.shop().ordinal();
+                    if (o == choice[i] || (mask & (1 << to)) == 0) {
+                        continue;
+                    }
+                    long candidateLine = lineCost(item, candidate);
+                    long newFrom = subtotals[from] - currentLine;
+                    long newTo = subtotals[to] + candidateLine;
+                    long delta = candidateLine - currentLine;
+                    if (from != to) {
+                        delta += deliveryFee(from, newFrom) - deliveryFee(from, subtotals[from])
+                                + deliveryFee(to, newTo) - deliveryFee(to, subtotals[to]);
+                    }
+                    if (delta < 0) {
+                        subtotals[from] -= currentLine;
+                        subtotals[to] += candidateLine;
+                        choice[i] = o;
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        return plan(items, choice);
+    }
+
+    // --- Общие расчеты ---
+
+    private Plan plan(List<BasketItem> items, int[] choice) {
+        long[] subtotals = new long[SHOPS.length];
+        long itemsCost = 0;
+        for (int i = 0; i < items.size(); i++) {
+            ItemOption option = items.get(i).options().get(choice[i]);
+            long line = lineCost(items.get(i), option);
+            subtotals[option.shop().ordinal()] += line;
+            itemsCost += line;
+        }
+        long[] shopFees = new long[SHOPS.length];
+        long feesTotal = 0;
+        for (int shop = 0; shop < SHOPS.length; shop++) {
+            shopFees[shop] = deliveryFee(shop, subtotals[shop]);
+            feesTotal += shopFees[shop];
+        }
+        return new Plan(choice.clone(), subtotals, shopFees, itemsCost, itemsCost + feesTotal);
+    }
+
+    private long totalFees(long[] subtotals) {
+        long total = 0;
+        for (int shop = 0; shop < subtotals.length; shop++) {
+            total += deliveryFee(shop, subtotals[shop]);
+        }
+        return total;
+    }
+
+    private static long lineCost(BasketItem item, ItemOption option) {
+        return option.priceKopecks() * item.quantity();
+    }
+
+    private static final class ExactState {
+        private final long[] subtotals = new long[SHOPS.length];
+        private final int[] choice;
+        private final int[] bestChoice;
+        private long bestTotal = Long.MAX_VALUE;
+
+        private ExactState(int size) {
+            this.choice = new int[size];
+            this.bestChoice = new int[size];
+        }
+    }
+
+    /**
+     * Вариант покупки позиции в конкретном магазине
+     */
+    public record ItemOption(long productId, Shop shop, String title, long priceKopecks) {
+    }
+
+    /**
+     * Позиция корзины и ее варианты (не больше одного на магазин)
+     */
+    public record BasketItem(long productId, int quantity, List<ItemOption> options) {
+    }
+
+    /**
+     * План: choice[i] - индекс выбранного варианта i-й позиции; суммы по магазинам индексированы ordinal()
+     */
+    public record Plan(int[] choice, long[] subtotals, long[] fees, long itemsCost, long total) {
+
+        public boolean usesShop(Shop shop) {
+            return subtotals[shop.ordinal()] > 0;
+        }
+    }
+}
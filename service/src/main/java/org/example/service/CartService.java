@@ -1,83 +1,329 @@
 package org.example.service;
 
 import lombok.RequiredArgsConstructor;
-import org.example.entity.*;
+import org.example.entity.Cart;
+import org.example.entity.Shop;
+import org.example.repository.BasketRepository;
+import org.example.repository.BasketRepository.OptionRow;
+import org.example.repository.CartItemBatchRepository;
+import org.example.repository.CartItemRow;
 import org.example.repository.CartRepository;
+import org.example.service.BasketOptimizer.BasketItem;
+import org.example.service.BasketOptimizer.ItemOption;
+import org.example.service.BasketOptimizer.Plan;
+import org.example.util.Money;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
     private final CartRepository cartRepository;
+    private final BasketRepository basketRepository;
+    private final BasketOptimizer basketOptimizer;
+    private final CartItemBatchRepository cartItemBatchRepository;
 
-    private static final BigDecimal SAMOKAT_DELIVERY_FEE = new BigDecimal("99.00");
-    private static final BigDecimal LAVKA_DELIVERY_FEE = new BigDecimal("199.00");
+    // Два параметра на позицию; держимся далеко от лимита 65535 параметров PostgreSQL
+    private static final int MAX_CHANGES = 5000;
 
     public Cart saveCart(Cart cart) {
         return cartRepository.save(cart);
     }
 
-    public Cart getCart(Long cartId) {
-        return cartRepository.findById(cartId).orElseThrow(() -> new RuntimeException("Cart not found"));
+    /**
+     * Корзина для отображения: позиции с краткими данными товаров одним запросом, без загрузки сущностей
+     */
+    public CartView getCart(Long cartId) {
+        List<CartItemRow> rows = loadRows(cartId);
+        List<CartItemView> items = new ArrayList<>(rows.size());
+        for (CartItemRow row : rows) {
+            if (row.itemId() != null) {
+                items.add(new CartItemView(row.itemId(), row.quantity(),
+                        new ProductSummary(row.productId(), row.title(), row.shop(), row.volume(), Money.toRublesOrNull(row.currentPriceKopecks()))));
+            }
+        }
+        return new CartView(cartId, items);
     }
 
-    @Transactional
-    public Cart addProduct(Long cartId, Product product, int quantity) {
-        Cart cart = getCart(cartId);
-        Optional<CartItem> existing = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(product.getId()))
-                .findFirst();
-
-        if (existing.isPresent()) {
-            existing.get().setQuantity(existing.get().getQuantity() + quantity);
-        } else {
-            CartItem item = CartItem.builder().cart(cart).product(product).quantity(quantity).build();
-            cart.getItems().add(item);
+    private List<CartItemRow> loadRows(Long cartId) {
+        List<CartItemRow> rows = cartRepository.findItemRows(cartId);
+        if (rows.isEmpty()) {
+            throw cartNotFound(cartId);
         }
-        return cartRepository.save(cart);
+        return rows;
     }
 
-    // --- ОПТИМИЗАЦИЯ КОРЗИНЫ ---
+    private static ResponseStatusException cartNotFound(Long cartId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found: " + cartId);
+    }
+
+    public record CartView(Long id, List<CartItemView> items) {
+    }
+
+    public record CartItemView(Long id, int quantity, ProductSummary product) {
+    }
+
+    public record ProductSummary(Long id, String title, Shop shop, String volume, BigDecimal currentPrice) {
+    }
+
+    /**
+     * Пакетное изменение корзины: одна загрузка текущих позиций,
+     * затем один upsert в cart_items и (если нужно) одно удаление.
+     * В режиме ADD количество прибавляется к текущему прямо в БД (параллельные добавления не теряются),
+     * в режиме SET заменяет его; итоговое количество <= 0 удаляет позицию.
+     * Несуществующие товары не записываются и возвращаются в unknownProductIds,
+     * несуществующая корзина - 404, слишком много изменений - 400.
+     */
+    @Transactional
+    public CartChangeResult applyChanges(Long cartId, CartChanges changes) {
+        List<CartItemChange> items = changes.items() == null ? List.of() : changes.items();
+        if (items.size() > MAX_CHANGES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Too many cart changes in one request: " + items.size() + " > " + MAX_CHANGES);
+        }
+        ChangeMode mode = changes.mode() == null ? ChangeMode.ADD : changes.mode();
+
+        List<CartItemRow> rows = loadRows(cartId);
+        Map<Long, Integer> current = new HashMap<>(rows.size() * 2);
+        for (CartItemRow row : rows) {
+            if (row.itemId() != null) {
+                current.put(row.productId(), row.quantity());
+            }
+        }
 
-    public BasketOptimizationResult optimizeCart(Cart cart) {
-        BigDecimal totalSamokat = BigDecimal.ZERO;
-        BigDecimal totalLavka = BigDecimal.ZERO;
+        // Несколько изменений одного товара в запросе сворачиваются в одно
+        Map<Long, Integer> target = new LinkedHashMap<>();
+        for (CartItemChange change : items) {
+            if (change.productId() == null) {
+                continue;
+            }
+            if (mode == ChangeMode.SET) {
+                target.put(change.productId(), change.quantity());
+            } else {
+                target.merge(change.productId(), change.quantity(), Integer::sum);
+            }
+        }
+        if (mode == ChangeMode.SET) {
+            return writeQuantities(cartId, current, target, Map.of());
+        }
 
-        for (CartItem item : cart.getItems()) {
-            Product product = item.getProduct();
-            BigDecimal sPrice = (product.getShop() == Shop.SAMOKAT) ? product.getCurrentPrice() : null;
-            BigDecimal lPrice = (product.getShop() == Shop.LAVKA) ? product.getCurrentPrice() : null;
+        // ADD: добавки прибавляются в самой БД, чтобы не терять параллельные изменения.
+        // Уменьшения (CHECK quantity > 0 не дает прибавить отрицательное) считаются по заблокированным строкам
+        Map<Long, Integer> added = new LinkedHashMap<>();
+        Map<Long, Integer> decreased = new LinkedHashMap<>();
+        target.forEach((productId, delta) -> {
+            if (delta > 0) {
+                added.put(productId, delta);
+            } else if (delta < 0) {
+                decreased.put(productId, delta);
+            }
+        });
+        Map<Long, Integer> locked = cartItemBatchRepository.lockQuantities(cartId, decreased.keySet());
+        Map<Long, Integer> decreasedTarget = new LinkedHashMap<>();
+        locked.forEach((productId, quantity) -> decreasedTarget.put(productId, quantity + decreased.get(productId)));
+        return writeQuantities(cartId, locked, decreasedTarget, added);
+    }
 
-            if (sPrice != null) {
-                totalSamokat = totalSamokat.add(sPrice.multiply(BigDecimal.valueOf(item.getQuantity())));
+    /**
+     * Запись итоговых количеств (target) относительно текущих (current) и атомарных добавок (added)
+     */
+    private CartChangeResult writeQuantities(Long cartId, Map<Long, Integer> current, Map<Long, Integer> target, Map<Long, Integer> added) {
+        Map<Long, Integer> toWrite = new LinkedHashMap<>();
+        List<Long> toDelete = new ArrayList<>();
+        target.forEach((productId, quantity) -> {
+            Integer existing = current.get(productId);
+            if (quantity > 0 && !quantity.equals(existing)) {
+                toWrite.put(productId, quantity);
+            } else if (quantity <= 0 && existing != null) {
+                toDelete.add(productId);
             }
-            if (lPrice != null) {
-                totalLavka = totalLavka.add(lPrice.multiply(BigDecimal.valueOf(item.getQuantity())));
+        });
+
+        Map<Long, Boolean> written;
+        try {
+            written = new HashMap<>(cartItemBatchRepository.upsertQuantities(cartId, toWrite));
+            written.putAll(cartItemBatchRepository.addQuantities(cartId, added));
+        } catch (DataIntegrityViolationException e) {
+            // Товары отфильтрованы в самом upsert, внешний ключ нарушает только корзина, удаленная после загрузки позиций
+            throw cartNotFound(cartId);
+        }
+        int removed = cartItemBatchRepository.deleteProducts(cartId, toDelete);
+
+        int inserted = (int) written.values().stream().filter(Boolean::booleanValue).count();
+        return CartChangeResult.builder()
+                .cartId(cartId)
+                .inserted(inserted)
+                .updated(written.size() - inserted)
+                .removed(removed)
+                .unknownProductIds(Stream.concat(toWrite.keySet().stream(), added.keySet().stream())
+                        .filter(id -> !written.containsKey(id))
+                        .toList())
+                .build();
+    }
+
+    public enum ChangeMode {
+        ADD,
+        SET
+    }
+
+    public record CartItemChange(Long productId, int quantity) {
+    }
+
+    public record CartChanges(ChangeMode mode, List<CartItemChange> items) {
+    }
+
+    @lombok.Builder
+    @lombok.Data
+    public static class CartChangeResult {
+        private Long cartId;
+        private int inserted;
+        private int updated;
+        private int removed;
+        private List<Long> unknownProductIds;   // Товары, которых нет в каталоге
+    }
+
+    // --- ОПТИМИЗАЦИЯ КОРЗИНЫ ---
+
+    /**
+     * Оптимизация корзины: для каждой позиции ищутся такие же товары во всех магазинах
+     * (по сопоставлениям), затем выбирается самое дешевое распределение с учетом доставки, в том числе раздельный заказ.
+     */
+    public BasketOptimizationResult optimizeCart(Long cartId) {
+        List<OptionRow> rows = basketRepository.findOptions(cartId);
+        if (rows.isEmpty()) {
+            throw cartNotFound(cartId);
+        }
+
+        // Строки идут по позициям: сама позиция и ее эквиваленты подряд
+        Map<Long, List<OptionRow>> byItem = new LinkedHashMap<>();
+        for (OptionRow row : rows) {
+            if (row.cartProductId() != null) {
+                byItem.computeIfAbsent(row.cartProductId(), id -> new ArrayList<>()).add(row);
             }
         }
 
-        totalSamokat = totalSamokat.add(SAMOKAT_DELIVERY_FEE);
-        totalLavka = totalLavka.add(LAVKA_DELIVERY_FEE);
+        List<BasketItem> basket = new ArrayList<>(byItem.size());
+        List<Long> unavailable = new ArrayList<>();
+        byItem.forEach((productId, options) -> {
+            List<ItemOption> cheapest = cheapestPerShop(options);
+            if (cheapest.isEmpty()) {
+                unavailable.add(productId);
+            } else {
+                basket.add(new BasketItem(productId, options.get(0).quantity(), cheapest));
+            }
+        });
 
-        boolean samokatIsBetter = totalSamokat.compareTo(totalLavka) <= 0;
+        Plan best = basketOptimizer.optimize(basket);
+        Plan samokatOnly = basketOptimizer.singleShop(basket, Shop.SAMOKAT);
+        Plan lavkaOnly = basketOptimizer.singleShop(basket, Shop.LAVKA);
 
         return BasketOptimizationResult.builder()
-                .totalSamokat(totalSamokat)
-                .totalLavka(totalLavka)
-                .recommendedShop(samokatIsBetter ? Shop.SAMOKAT : Shop.LAVKA)
+                .totalSamokat(samokatOnly == null ? null : Money.toRubles(samokatOnly.total()))
+                .totalLavka(lavkaOnly == null ? null : Money.toRubles(lavkaOnly.total()))
+                .recommendedShop(recommendedShop(best, samokatOnly, lavkaOnly))
+                .optimalTotal(best == null ? BigDecimal.ZERO : Money.toRubles(best.total()))
+                .split(best != null && best.usesShop(Shop.SAMOKAT) && best.usesShop(Shop.LAVKA))
+                .shops(best == null ? List.of() : shopSummaries(best))
+                .assignments(best == null ? List.of() : assignments(basket, best))
+                .unavailableProductIds(unavailable)
                 .build();
     }
 
+    private List<ItemOption> cheapestPerShop(List<OptionRow> candidates) {
+        Map<Shop, ItemOption> byShop = new EnumMap<>(Shop.class);
+        for (OptionRow candidate : candidates) {
+            if (candidate.productId() == null || candidate.priceKopecks() == null) {
+                continue;
+            }
+            ItemOption option = new ItemOption(candidate.productId(), candidate.shop(), candidate.title(), candidate.priceKopecks());
+            byShop.merge(candidate.shop(), option, (a, b) -> a.priceKopecks() <= b.priceKopecks() ? a : b);
+        }
+        return new ArrayList<>(byShop.values());
+    }
+
+    private Shop recommendedShop(Plan best, Plan samokatOnly, Plan lavkaOnly) {
+        if (best != null && !(best.usesShop(Shop.SAMOKAT) && best.usesShop(Shop.LAVKA))) {
+            return best.usesShop(Shop.LAVKA) ? Shop.LAVKA : Shop.SAMOKAT;
+        }
+        if (samokatOnly == null) {
+            return lavkaOnly == null ? null : Shop.LAVKA;
+        }
+        return lavkaOnly == null || samokatOnly.total() <= lavkaOnly.total() ? Shop.SAMOKAT : Shop.LAVKA;
+    }
+
+    private List<ShopOrder> shopSummaries(Plan plan) {
+        List<ShopOrder> result = new ArrayList<>();
+        for (Shop shop : Shop.values()) {
+            if (plan.usesShop(shop)) {
+                result.add(ShopOrder.builder()
+                        .shop(shop)
+                        .itemsTotal(Money.toRubles(plan.subtotals()[shop.ordinal()]))
+                        .deliveryFee(Money.toRubles(plan.fees()[shop.ordinal()]))
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    private List<ItemAssignment> assignments(List<BasketItem> basket, Plan plan) {
+        List<ItemAssignment> result = new ArrayList<>(basket.size());
+        for (int i = 0; i < basket.size(); i++) {
+            BasketItem item = basket.get(i);
+            ItemOption option = item.options().get(plan.choice()[i]);
+            result.add(ItemAssignment.builder()
+                    .cartProductId(item.productId())
+                    .productId(option.productId())
+                    .title(option.title())
+                    .shop(option.shop())
+                    .price(Money.toRubles(option.priceKopecks()))
+                    .quantity(item.quantity())
+                    .build());
+        }
+        return result;
+    }
+
     @lombok.Builder
     @lombok.Data
     public static class BasketOptimizationResult {
-        private BigDecimal totalSamokat;
-        private BigDecimal totalLavka;
+        private BigDecimal totalSamokat;      // Вся корзина в Самокате (null - там есть не все товары)
+        private BigDecimal totalLavka;        // Вся корзина в Лавке (null - там есть не все товары)
         private Shop recommendedShop;
+        private BigDecimal optimalTotal;      // Итог лучшего распределения, включая доставку
+        private boolean split;                // Выгоднее заказать в нескольких магазинах
+        private List<ShopOrder> shops;
+        private List<ItemAssignment> assignments;
+        private List<Long> unavailableProductIds;
+    }
+
+    @lombok.Builder
+    @lombok.Data
+    public static class ShopOrder {
+        private Shop shop;
+        private BigDecimal itemsTotal;
+        private BigDecimal deliveryFee;
+    }
+
+    @lombok.Builder
+    @lombok.Data
+    public static class ItemAssignment {
+        private long cartProductId;
+        private long productId;
+        private String title;
+        private Shop shop;
+        private BigDecimal price;
+        private int quantity;
     }
 }
@@ -0,0 +1,315 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.ProductMatchRepository;
+import org.example.repository.ProductMatchRepository.Match;
+import org.example.repository.ProductRepository;
+import org.example.service.ProductService.ProductComparison;
+import org.example.util.Money;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Предрасчитанный индекс пар товаров для сравнения цен.
+ * Пары берутся из сопоставлений товаров (product_matches), несопоставленные товары группируются
+ * по нормализованному названию. Строится один раз из БД, дальше обновляются только группы,
+ * затронутые измененными продуктами или сопоставлениями. Пары хранятся уже отсортированными,
+ * поэтому страница читается без пересортировки и не ждет сортировки всего индекса.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ComparisonIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^a-zа-я0-9\\s]");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    // Название, затем id товара Лавки; группа различает ключи, пока товар переходит из группы в группу
+    private static final Comparator<SortKey> ORDER = Comparator
+            .comparing(SortKey::productName)
+            .thenComparingLong(SortKey::lavkaProductId)
+            .thenComparing(SortKey::group);
+
+    private static final String MATCH_KEY_PREFIX = "#";
+
+    private final ProductRepository productRepository;
+    private final ProductMatchRepository matchRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Продукты с ценами и их сопоставленные пары из другого магазина
+    private final Map<Long, Product> products = new HashMap<>();
+    private final Map<Long, Long> partners = new HashMap<>();
+    // Группа (пара сопоставления или нормализованное название) -> продукты группы по id
+    private final Map<String, Map<Long, Product>> groups = new HashMap<>();
+    private final Map<Long, String> groupByProductId = new HashMap<>();
+    private final Map<String, ProductComparison> comparisons = new HashMap<>();
+    // Те же пары в порядке выдачи, обновляются вместе с comparisons
+    private final NavigableMap<SortKey, ProductComparison> ordered = new TreeMap<>(ORDER);
+
+    private boolean initialized;
+    // Снимок всех пар для getAll, сбрасывается при любом изменении
+    private volatile List<ProductComparison> all;
+
+    /**
+     * Нормализация названия продукта для группировки
+     */
+    public static String normalizeProductName(String title) {
+        String lower = NON_WORD.matcher(title.toLowerCase()).replaceAll("");
+        return SPACES.matcher(lower).replaceAll(" ").trim();
+    }
+
+    /**
+     * Страница готовых пар, отсортированных по названию.
+     * Отрицательная страница приводится к первой, размер - не меньше одного элемента.
+     */
+    public List<ProductComparison> getPage(int page, int size) {
+        int pageSize = Math.max(1, size);
+        long from = (long) Math.max(0, page) * pageSize;
+        return read(values -> values.stream().skip(from).limit(pageSize).toList());
+    }
+
+    /**
+     * Все готовые пары, отсортированные по названию
+     */
+    public List<ProductComparison> getAll() {
+        return read(values -> {
+            // Писатели сбрасывают снимок под блокировкой записи, поэтому читатели не гоняются с ними
+            List<ProductComparison> snapshot = all;
+            if (snapshot == null) {
+                snapshot = List.copyOf(values);
+                all = snapshot;
+            }
+            return snapshot;
+        });
+    }
+
+    /**
+     * Чтение отсортированных пар; при первом обращении (или после полного пересчета сопоставлений) индекс строится из БД
+     */
+    private <T> T read(Function<Collection<ProductComparison>, T> reader) {
+        lock.readLock().lock();
+        try {
+            if (initialized) {
+                return reader.apply(ordered.values());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!initialized) {
+                rebuild();
+            }
+            return reader.apply(ordered.values());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Точечное обновление групп, в которые входили или попали измененные продукты
+     */
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!initialized) {
+                // Индекс еще не строился, при первом запросе он прочитает актуальные данные
+                return;
+            }
+            Set<String> touched = new HashSet<>();
+            for (Product product : event.products()) {
+                touched.add(remove(product.getId()));
+                touched.add(add(product));
+            }
+            refresh(touched);
+            log.debug("Comparison index updated: {} products, {} groups", event.products().size(), touched.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перегруппировка товаров, у которых поменялись сопоставления
+     */
+    @EventListener
+    public void onMatchesChanged(ProductMatchesChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!initialized) {
+                return;
+            }
+            if (event.full()) {
+                // После полного пересчета проще перечитать индекс при следующем запросе
+                initialized = false;
+                return;
+            }
+            Set<Long> regrouped = new HashSet<>(event.productIds());
+            for (Long id : event.productIds()) {
+                Long previous = partners.remove(id);
+                if (previous != null) {
+                    partners.remove(previous);
+                    regrouped.add(previous);
+                }
+            }
+            event.matches().forEach(this::link);
+
+            Set<String> touched = new HashSet<>();
+            for (Long id : regrouped) {
+                Product product = products.get(id);
+                if (product != null) {
+                    touched.add(remove(id));
+                    touched.add(add(product));
+                }
+            }
+            refresh(touched);
+            log.debug("Comparison index regrouped: {} products, {} groups", regrouped.size(), touched.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        products.clear();
+        partners.clear();
+        groups.clear();
+        groupByProductId.clear();
+        comparisons.clear();
+        ordered.clear();
+        all = null;
+        matchRepository.findAllPairs().forEach(this::link);
+        for (Product product : productRepository.findProductsWithPrices()) {
+            add(product);
+        }
+        groups.keySet().forEach(this::refreshGroup);
+        initialized = true;
+        log.info("Comparison index built in {} ms: {} groups, {} pairs",
+                System.currentTimeMillis() - start, groups.size(), comparisons.size());
+    }
+
+    private void link(Match match) {
+        partners.put(match.productId(), match.matchedProductId());
+        partners.put(match.matchedProductId(), match.productId());
+    }
+
+    /**
+     * Ключ группы: сопоставленная пара, для несопоставленных товаров - нормализованное название
+     */
+    private String groupKey(Product product) {
+        Long partner = partners.get(product.getId());
+        if (partner != null) {
+            // '#' не встречается в нормализованных названиях, поэтому ключи не пересекаются
+            return MATCH_KEY_PREFIX + Math.min(product.getId(), partner);
+        }
+        return normalizeProductName(product.getTitle());
+    }
+
+    private String add(Product product) {
+        if (product.getCurrentPriceKopecks() == null) {
+            return null;
+        }
+        String key = groupKey(product);
+        products.put(product.getId(), product);
+        groups.computeIfAbsent(key, k -> new HashMap<>()).put(product.getId(), product);
+        groupByProductId.put(product.getId(), key);
+        return key;
+    }
+
+    private String remove(Long productId) {
+        products.remove(productId);
+        String previous = groupByProductId.remove(productId);
+        if (previous != null) {
+            Map<Long, Product> group = groups.get(previous);
+            group.remove(productId);
+            if (group.isEmpty()) {
+                groups.remove(previous);
+            }
+        }
+        return previous;
+    }
+
+    private void refresh(Set<String> touched) {
+        touched.remove(null);
+        touched.forEach(this::refreshGroup);
+        all = null;
+    }
+
+    private void refreshGroup(String key) {
+        Map<Long, Product> group = groups.get(key);
+        ProductComparison comparison = group == null ? null : createProductComparison(group);
+        ProductComparison previous = comparison == null ? comparisons.remove(key) : comparisons.put(key, comparison);
+        if (previous != null) {
+            ordered.remove(SortKey.of(key, previous));
+        }
+        if (comparison != null) {
+            ordered.put(SortKey.of(key, comparison), comparison);
+        }
+    }
+
+    /**
+     * Создание объекта сравнения продуктов (по одному товару каждого магазина с наименьшим id)
+     */
+    private ProductComparison createProductComparison(Map<Long, Product> group) {
+        Product lavkaProduct = null;
+        Product samokatProduct = null;
+        for (Product product : group.values()) {
+            if (product.getShop() == Shop.LAVKA && (lavkaProduct == null || product.getId() < lavkaProduct.getId())) {
+                lavkaProduct = product;
+            } else if (product.getShop() == Shop.SAMOKAT && (samokatProduct == null || product.getId() < samokatProduct.getId())) {
+                samokatProduct = product;
+            }
+        }
+
+        if (lavkaProduct == null || samokatProduct == null) {
+            return null;
+        }
+
+        Long lavkaPrice = lavkaProduct.getCurrentPriceKopecks();
+        Long samokatPrice = samokatProduct.getCurrentPriceKopecks();
+
+        if (lavkaPrice == null || samokatPrice == null) {
+            return null;
+        }
+
+        // Определяем более дешевый вариант (в копейках)
+        String cheaperShop = lavkaPrice <= samokatPrice ? "LAVKA" : "SAMOKAT";
+        long priceDifference = Math.abs(lavkaPrice - samokatPrice);
+
+        return ProductComparison.builder()
+                .productName(lavkaProduct.getTitle())
+                .lavkaProduct(lavkaProduct)
+                .samokatProduct(samokatProduct)
+                .lavkaPrice(Money.toRubles(lavkaPrice))
+                .samokatPrice(Money.toRubles(samokatPrice))
+                .cheaperShop(cheaperShop)
+                .priceDifference(Money.toRubles(priceDifference))
+                .build();
+    }
+
+    private record SortKey(String productName, long lavkaProductId, String group) {
+
+        static SortKey of(String group, ProductComparison comparison) {
+            return new SortKey(comparison.getProductName(), comparison.getLavkaProduct().getId(), group);
+        }
+    }
+}
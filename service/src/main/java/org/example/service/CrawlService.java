@@ -0,0 +1,340 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.CrawlProperties;
+import org.example.configuration.CrawlProperties.ShopCrawl;
+import org.example.entity.Shop;
+import org.example.repository.CrawlFrontierRepository;
+import org.example.repository.CrawlFrontierRepository.FrontierEntry;
+import org.example.service.ProductIngestionService.IngestionResult;
+import org.example.util.PageReadiness;
+import org.example.util.ScrapeTimeline;
+import org.example.util.WebDriverPool;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Обход каталогов магазинов по категориям.
+ * Ссылки на категории ищутся на странице каталога и сохраняются во фронтир (crawl_frontier),
+ * затем категории, которым пора обновиться, обходятся несколькими воркерами магазина
+ * с ограничением параллельности и минимальным интервалом между загрузками страниц.
+ */
+@Service
+@Slf4j
+public class CrawlService {
+
+    private static final String COLLECT_LINKS_SCRIPT =
+            "return Array.from(document.querySelectorAll('a[href]'), a => a.href);";
+
+    // Откат после ошибок: интервал повторного обхода умножается на 2^failures, но не больше чем на 16
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    private final CrawlFrontierRepository frontierRepository;
+    private final ProductIngestionService ingestionService;
+    private final WebDriverPool driverPool;
+    private final PageReadiness readiness;
+    private final CrawlProperties properties;
+    private final AsyncTaskExecutor crawlExecutor;
+
+    private final Map<Shop, Instant> lastDiscovery = new ConcurrentHashMap<>();
+    private final Map<Shop, PolitenessGate> gates = new ConcurrentHashMap<>();
+
+    public CrawlService(CrawlFrontierRepository frontierRepository,
+                       ProductIngestionService ingestionService,
+                       WebDriverPool driverPool,
+                       PageReadiness readiness,
+                       CrawlProperties properties,
+                       @Qualifier("crawlExecutor") AsyncTaskExecutor crawlExecutor) {
+        this.frontierRepository = frontierRepository;
+        this.ingestionService = ingestionService;
+        this.driverPool = driverPool;
+        this.readiness = readiness;
+        this.properties = properties;
+        this.crawlExecutor = crawlExecutor;
+
+        int requested = totalConcurrency();
+        if (properties.isEnabled() && requested > driverPool.getMaxSize()) {
+            log.warn("Crawl concurrency of all shops ({}) exceeds app.selenium.pool.max-size ({}), "
+                    + "shops get proportional shares of the pool", requested, driverPool.getMaxSize());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Duration getWindow() {
+        return properties.getWindow();
+    }
+
+    /**
+     * Обход всех категорий магазина, которым пора обновиться.
+     * Новые категории не начинаются после окончания окна обхода, оставшиеся ждут следующего запуска.
+     */
+    public ShopCrawlResult crawlShop(Parserable parser) throws InterruptedException {
+        Shop shop = parser.getShop();
+        ShopCrawl settings = properties.forShop(shop);
+        long start = System.nanoTime();
+        long deadline = start + properties.getWindow().toNanos();
+        LocalDateTime runStartedAt = LocalDateTime.now();
+
+        int discovered = refreshFrontier(parser, settings, runStartedAt);
+
+        int limit = settings.getMaxCategories() > 0 ? settings.getMaxCategories() : Integer.MAX_VALUE;
+        List<FrontierEntry> due = frontierRepository.findDue(shop, runStartedAt, limit);
+        int workerCount = workerCount(settings);
+        log.info("Crawling {} categories of {} ({} workers)", due.size(), shop, workerCount);
+
+        Queue<FrontierEntry> queue = new ConcurrentLinkedQueue<>(due);
+        PolitenessGate gate = gates.computeIfAbsent(shop, key -> new PolitenessGate());
+        Totals totals = new Totals();
+
+        // Воркеры пишут в хронологию прогона магазина
+        ScrapeTimeline timeline = ScrapeTimeline.current();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(crawlExecutor.submit(() -> {
+                try (ScrapeTimeline.Scope scope = timeline.attach()) {
+                    runWorker(parser, queue, gate, settings.getPolitenessDelay(), deadline, runStartedAt, totals);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(worker -> worker.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            workers.forEach(worker -> worker.cancel(true));
+            throw new IllegalStateException("Crawl worker of " + shop + " failed", e.getCause());
+        }
+
+        ShopCrawlResult result = ShopCrawlResult.builder()
+                .shop(shop)
+                .categoriesDiscovered(discovered)
+                .categoriesCrawled(totals.crawled.get())
+                .categoriesFailed(totals.failed.get())
+                .categoriesPending(queue.size())
+                .productsFound(totals.products.get())
+                .inserted(totals.inserted.get())
+                .updated(totals.updated.get())
+                .unchanged(totals.unchanged.get())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+        log.info("{} crawl completed: {}", shop, result);
+        return result;
+    }
+
+    /**
+     * Воркер держит браузер из пула всю категорию, поэтому воркеры сверх пула только ждали бы borrow().
+     * Если сумма concurrency магазинов больше пула, магазину достается доля пула пропорционально его concurrency.
+     */
+    int workerCount(ShopCrawl settings) {
+        int requested = Math.max(1, settings.getConcurrency());
+        int total = totalConcurrency();
+        if (total <= driverPool.getMaxSize()) {
+            return requested;
+        }
+        return Math.max(1, requested * driverPool.getMaxSize() / total);
+    }
+
+    private int totalConcurrency() {
+        return Arrays.stream(Shop.values())
+                .mapToInt(shop -> Math.max(1, properties.forShop(shop).getConcurrency()))
+                .sum();
+    }
+
+    /**
+     * Категории магазина во фронтире
+     */
+    public List<FrontierEntry> getFrontier(Shop shop) {
+        return frontierRepository.findByShop(shop);
+    }
+
+    /**
+     * Поиск категорий на странице каталога (не чаще discovery-interval или если фронтир пуст).
+     * Категория парсера по умолчанию добавляется всегда, поэтому без найденных ссылок обход не хуже прежнего.
+     * Новые категории становятся в очередь с моментом начала прогона, чтобы обойти их в этом же прогоне.
+     */
+    private int refreshFrontier(Parserable parser, ShopCrawl settings, LocalDateTime runStartedAt) throws InterruptedException {
+        Shop shop = parser.getShop();
+        Instant last = lastDiscovery.get(shop);
+        boolean discoveryDue = last == null || last.plus(properties.getDiscoveryInterval()).isBefore(Instant.now());
+
+        Set<String> urls = new LinkedHashSet<>();
+        urls.add(parser.getDefaultCategoryUrl());
+        if (settings.getCatalogUrl() != null && (discoveryDue || frontierRepository.countByShop(shop) <= 1)) {
+            try {
+                urls.addAll(discoverCategories(settings));
+                lastDiscovery.put(shop, Instant.now());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("Category discovery for {} failed, using the known frontier: {}", shop, e.getMessage());
+            }
+        }
+
+        int added = frontierRepository.addAll(shop, urls, runStartedAt);
+        if (added > 0) {
+            log.info("Added {} new {} categories to the frontier", added, shop);
+        }
+        return added;
+    }
+
+    private List<String> discoverCategories(ShopCrawl settings) throws InterruptedException {
+        URI catalog = URI.create(settings.getCatalogUrl());
+        Pattern categoryPath = Pattern.compile(settings.getCategoryPath());
+
+        WebDriver driver = driverPool.borrow();
+        List<?> links;
+        try {
+            readiness.open(driver, settings.getCatalogUrl(), null);
+            links = (List<?>) ((JavascriptExecutor) driver).executeScript(COLLECT_LINKS_SCRIPT);
+        } catch (RuntimeException | InterruptedException e) {
+            driverPool.invalidate(driver);
+            throw e;
+        }
+        driverPool.release(driver);
+
+        Set<String> categories = new LinkedHashSet<>();
+        for (Object link : links == null ? List.of() : links) {
+            String category = toCategoryUrl(String.valueOf(link), catalog, categoryPath);
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        if (settings.getMaxCategories() > 0 && categories.size() > settings.getMaxCategories()) {
+            return new ArrayList<>(categories).subList(0, settings.getMaxCategories());
+        }
+        return new ArrayList<>(categories);
+    }
+
+    /**
+     * Ссылка на категорию того же хоста без параметров и якоря; null - не категория
+     */
+    static String toCategoryUrl(String href, URI catalog, Pattern categoryPath) {
+        try {
+            URI uri = URI.create(href);
+            if (uri.getPath() == null || !categoryPath.matcher(uri.getPath()).matches()) {
+                return null;
+            }
+            if (!String.valueOf(catalog.getHost()).equalsIgnoreCase(String.valueOf(uri.getHost()))
+                    || catalog.getPort() != uri.getPort()) {
+                return null;
+            }
+            return new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), uri.getPath(), null, null).toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void runWorker(Parserable parser, Queue<FrontierEntry> queue, PolitenessGate gate, Duration politenessDelay,
+                           long deadline, LocalDateTime runStartedAt, Totals totals) throws InterruptedException {
+        FrontierEntry entry;
+        while (System.nanoTime() < deadline && (entry = queue.poll()) != null) {
+            gate.awaitTurn(politenessDelay);
+            crawlCategory(parser, entry, runStartedAt, totals);
+        }
+    }
+
+    private void crawlCategory(Parserable parser, FrontierEntry entry, LocalDateTime runStartedAt, Totals totals)
+            throws InterruptedException {
+        try {
+            int found;
+            IngestionResult ingestion;
+            try (IngestionStream stream = ingestionService.openStream()) {
+                parser.streamProducts(entry.url(), stream);
+                ingestion = stream.finish();
+                found = stream.getReceived();
+            }
+
+            frontierRepository.markCrawled(entry.id(), LocalDateTime.now(),
+                    runStartedAt.plus(properties.getRecrawlInterval()),
+                    found, ingestion.getInserted() + ingestion.getUpdated());
+            totals.crawled.incrementAndGet();
+            totals.products.addAndGet(found);
+            totals.inserted.addAndGet(ingestion.getInserted());
+            totals.updated.addAndGet(ingestion.getUpdated());
+            totals.unchanged.addAndGet(ingestion.getUnchanged());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to crawl {} category {}: {}", entry.shop(), entry.url(), e.getMessage());
+            Duration backoff = properties.getRecrawlInterval().multipliedBy(1L << Math.min(entry.failures(), MAX_BACKOFF_SHIFT));
+            frontierRepository.markFailed(entry.id(), LocalDateTime.now(), runStartedAt.plus(backoff));
+            totals.failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Минимальный интервал между загрузками страниц одного магазина, общий для всех его воркеров
+     */
+    private static final class PolitenessGate {
+        private long nextStart = System.nanoTime();
+
+        void awaitTurn(Duration delay) throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextStart);
+                nextStart = start + delay.toNanos();
+                wait = start - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    private static final class Totals {
+        private final AtomicInteger crawled = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger products = new AtomicInteger();
+        private final AtomicInteger inserted = new AtomicInteger();
+        private final AtomicInteger updated = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+    }
+
+    /**
+     * Итог обхода категорий одного магазина
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class ShopCrawlResult {
+        private Shop shop;
+        private int categoriesDiscovered;
+        private int categoriesCrawled;
+        private int categoriesFailed;
+        private int categoriesPending;     // Не успели за окно обхода
+        private int productsFound;
+        private int inserted;
+        private int updated;
+        private int unchanged;
+        private long durationMs;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.util.ParsingMetrics;
+
+import java.util.List;
+
+/**
+ * Парсер с запасным вариантом: сначала легкий backend (HTTP/JSON), при ошибке или пустом ответе - браузерный.
+ */
+@Slf4j
+public class FallbackParser implements Parserable {
+
+    private final Parserable primary;
+    private final Parserable fallback;
+    private final ParsingMetrics metrics;
+
+    public FallbackParser(Parserable primary, Parserable fallback, ParsingMetrics metrics) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Shop getShop() {
+        return fallback.getShop();
+    }
+
+    @Override
+    public String getDefaultCategoryUrl() {
+        return fallback.getDefaultCategoryUrl();
+    }
+
+    @Override
+    public List<Product> getProducts(String categoryUrl) throws InterruptedException {
+        try {
+            List<Product> products = primary.getProducts(categoryUrl);
+            if (!products.isEmpty()) {
+                return products;
+            }
+            metrics.fallback(getShop(), "empty");
+            log.warn("{} HTTP backend returned no products for {}, falling back to the browser", getShop(), categoryUrl);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            metrics.fallback(getShop(), "error");
+            log.warn("{} HTTP backend failed for {}, falling back to the browser: {}", getShop(), categoryUrl, e.getMessage());
+        }
+        return fallback.getProducts(categoryUrl);
+    }
+
+    /**
+     * Если HTTP backend не отдал ни одного товара, категория целиком парсится браузером.
+     * Если он упал на середине, браузер повторяет категорию: уже сохраненные товары просто не изменятся.
+     */
+    @Override
+    public void streamProducts(String categoryUrl, ProductSink sink) throws InterruptedException {
+        int[] emitted = new int[1];
+        try {
+            primary.streamProducts(categoryUrl, batch -> {
+                emitted[0] += batch.size();
+                sink.accept(batch);
+            });
+            if (emitted[0] > 0) {
+                return;
+            }
+            metrics.fallback(getShop(), "empty");
+            log.warn("{} HTTP backend returned no products for {}, falling back to the browser", getShop(), categoryUrl);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            metrics.fallback(getShop(), "error");
+            log.warn("{} HTTP backend failed for {} after {} products, falling back to the browser: {}",
+                    getShop(), categoryUrl, emitted[0], e.getMessage());
+        }
+        fallback.streamProducts(categoryUrl, sink);
+    }
+}
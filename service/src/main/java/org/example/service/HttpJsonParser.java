@@ -0,0 +1,285 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.HttpScrapingProperties.ShopApi;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.util.ParsingMetrics;
+import org.example.util.ProductAccumulator;
+import org.example.util.ScrapeTimeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Парсер категории через JSON API магазина на JDK HttpClient (HTTP/2, общее соединение, асинхронные запросы).
+ * Ответ разбирается потоково: до массива товаров парсер идет по токенам, каждый товар читается отдельно,
+ * так что в памяти никогда не лежит весь ответ целиком.
+ */
+@Slf4j
+public class HttpJsonParser implements Parserable {
+
+    private final Shop shop;
+    private final String defaultCategoryUrl;
+    private final ShopApi api;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final Duration requestTimeout;
+    private final int maxConcurrentRequests;
+    private final ParsingMetrics metrics;
+
+    public HttpJsonParser(Shop shop, String defaultCategoryUrl, ShopApi api, HttpClient client, ObjectMapper mapper,
+                          Duration requestTimeout, int maxConcurrentRequests, ParsingMetrics metrics) {
+        this.shop = shop;
+        this.defaultCategoryUrl = defaultCategoryUrl;
+        this.api = api;
+        this.client = client;
+        this.mapper = mapper;
+        this.requestTimeout = requestTimeout;
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Shop getShop() {
+        return shop;
+    }
+
+    @Override
+    public String getDefaultCategoryUrl() {
+        return defaultCategoryUrl;
+    }
+
+    @Override
+    public List<Product> getProducts(String categoryUrl) throws InterruptedException {
+        // Страницы по offset могут пересекаться, если каталог изменился во время обхода
+        ProductAccumulator products = new ProductAccumulator();
+        streamProducts(categoryUrl, products::mergeAll);
+        return products.getProducts();
+    }
+
+    /**
+     * Каждая страница API отдается отдельной пачкой.
+     * Первая страница запрашивается сразу; если ответ сообщает общее число товаров,
+     * остальные страницы запрашиваются параллельно волнами, иначе - по одной, пока страница полная.
+     */
+    @Override
+    public void streamProducts(String categoryUrl, ProductSink sink) throws InterruptedException {
+        String category = categorySlug(categoryUrl);
+        log.info("Starting {} HTTP parsing of category {}", shop, category);
+
+        Page first = await(fetchPage(category, 0));
+        sink.accept(first.products());
+        int found = first.products().size();
+        int pageSize = api.getPageSize();
+
+        // Полнота страницы - по числу карточек в ответе, включая пропущенные неполные
+        if (first.items() >= pageSize) {
+            if (first.total() != null) {
+                int pages = Math.min((int) Math.ceil(first.total() / (double) pageSize), api.getMaxPages());
+                for (int from = 1; from < pages; from += maxConcurrentRequests) {
+                    List<CompletableFuture<Page>> wave = new ArrayList<>();
+                    for (int page = from; page < Math.min(from + maxConcurrentRequests, pages); page++) {
+                        wave.add(fetchPage(category, page));
+                    }
+                    for (CompletableFuture<Page> future : wave) {
+                        Page page = await(future);
+                        sink.accept(page.products());
+                        found += page.products().size();
+                    }
+                }
+            } else {
+                for (int page = 1; page < api.getMaxPages(); page++) {
+                    Page next = await(fetchPage(category, page));
+                    sink.accept(next.products());
+                    found += next.products().size();
+                    if (next.items() < pageSize) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        log.info("{} HTTP parsing completed. Found {} products", shop, found);
+    }
+
+    private CompletableFuture<Page> fetchPage(String category, int page) {
+        // Ответ разбирается в потоке HttpClient, хронология берется из потока парсера
+        ScrapeTimeline timeline = ScrapeTimeline.current();
+        long start = System.nanoTime();
+        String url = api.getUrlTemplate()
+                .replace("{category}", URLEncoder.encode(category, StandardCharsets.UTF_8))
+                .replace("{offset}", String.valueOf(page * api.getPageSize()))
+                .replace("{limit}", String.valueOf(api.getPageSize()))
+                .replace("{page}", String.valueOf(page));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET();
+        api.getHeaders().forEach(request::header);
+
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() / 100 != 2) {
+                            throw new IOException("HTTP " + response.statusCode() + " from " + url);
+                        }
+                        Page result = readPage(body);
+                        timeline.record(ScrapeTimeline.HTTP_PAGE, start, result.products().size(), url);
+                        return result;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Потоковый разбор страницы: спуск по itemsPointer, попутно читается totalPointer
+     */
+    Page readPage(InputStream body) throws IOException {
+        PageReader reader = new PageReader();
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            JsonToken root = parser.nextToken();
+            if (root == JsonToken.START_ARRAY && api.getItemsPointer().isEmpty()) {
+                reader.readItems(parser);
+            } else if (root == JsonToken.START_OBJECT) {
+                reader.walk(parser, "");
+            }
+        }
+        return new Page(reader.products, reader.items, reader.total);
+    }
+
+    private final class PageReader {
+        private final List<Product> products = new ArrayList<>();
+        private int items;
+        private Integer total;
+
+        // Парсер стоит на START_OBJECT узла с путем path
+        void walk(JsonParser parser, String path) throws IOException {
+            String itemsPointer = api.getItemsPointer();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String childPath = path + "/" + parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (childPath.equals(itemsPointer) && value == JsonToken.START_ARRAY) {
+                    readItems(parser);
+                } else if (value == JsonToken.START_OBJECT && itemsPointer.startsWith(childPath + "/")) {
+                    walk(parser, childPath);
+                } else if (childPath.equals(api.getTotalPointer()) && value.isNumeric()) {
+                    total = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        // Парсер стоит на START_ARRAY массива товаров; товары читаются по одному
+        void readItems(JsonParser parser) throws IOException {
+            int incomplete = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                items++;
+                JsonNode item = mapper.readTree(parser);
+                Product product = toProduct(item);
+                if (product != null) {
+                    products.add(product);
+                } else {
+                    incomplete++;
+                }
+            }
+            metrics.cardErrors(shop, "incomplete", incomplete);
+        }
+    }
+
+    private Product toProduct(JsonNode item) {
+        String title = text(item, api.getTitlePointer());
+        String ref = text(item, api.getRefPointer());
+        if (title == null || ref == null) {
+            return null;
+        }
+        return Product.builder()
+                .title(title)
+                .oldPriceStr(price(item, api.getOldPricePointer()))
+                .newPriceStr(price(item, api.getPricePointer()))
+                .volume(text(item, api.getVolumePointer()))
+                .ref(ref.startsWith("http") ? ref : api.getRefPrefix() + ref)
+                .shop(shop)
+                .build();
+    }
+
+    private static String text(JsonNode item, String pointer) {
+        if (pointer == null) {
+            return null;
+        }
+        JsonNode node = item.at(pointer);
+        if (node.isMissingNode() || node.isNull()) {
+            return null;
+        }
+        String text = node.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private String price(JsonNode item, String pointer) {
+        if (pointer == null) {
+            return null;
+        }
+        JsonNode node = item.at(pointer);
+        // Числовая цена всегда с двумя знаками: "89.999" разбиралось бы как цена с разделителем разрядов
+        if (node.isNumber()) {
+            return node.decimalValue().movePointLeft(api.getPriceScale()).setScale(2, RoundingMode.HALF_UP).toPlainString();
+        }
+        String text = text(item, pointer);
+        if (text != null && api.getPriceScale() > 0) {
+            try {
+                return new BigDecimal(text).movePointLeft(api.getPriceScale()).setScale(2, RoundingMode.HALF_UP).toPlainString();
+            } catch (NumberFormatException e) {
+                return text;
+            }
+        }
+        return text;
+    }
+
+    private static String categorySlug(String categoryUrl) {
+        String path = URI.create(categoryUrl).getPath();
+        if (path == null) {
+            return "";
+        }
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+    }
+
+    private static Page await(CompletableFuture<Page> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    // items - карточек в ответе, products - разобранные из них товары
+    record Page(List<Product> products, int items, Integer total) {
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.service.ProductIngestionService.IngestionResult;
+import org.example.util.ScrapeTimeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Поток пачек товаров от парсера в сохранение.
+ * Пачки складываются в ограниченный буфер, отдельный потребитель сохраняет их параллельно с парсингом;
+ * когда буфер полон, парсер ждет (backpressure). Без свободного потребителя пачки сохраняются прямо в потоке парсера.
+ */
+public final class IngestionStream implements ProductSink, AutoCloseable {
+
+    // Маркер конца потока (сравнивается по ссылке)
+    private static final List<Product> END = new ArrayList<>();
+
+    private static final long OFFER_POLL_MS = 200;
+
+    private final Function<List<Product>, IngestionResult> ingest;
+    private final BlockingQueue<List<Product>> buffer;
+    private final IngestionResult total = IngestionResult.builder().build();
+    private final ScrapeTimeline timeline;
+    private Future<IngestionResult> consumer;
+    private int received;
+    private boolean finished;
+
+    IngestionStream(Function<List<Product>, IngestionResult> ingest, int bufferBatches, ScrapeTimeline timeline) {
+        this.ingest = ingest;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferBatches));
+        this.timeline = timeline;
+    }
+
+    void attachConsumer(Future<IngestionResult> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Цикл потребителя: сохраняет пачки, пока не придет маркер конца
+     */
+    IngestionResult drain() throws InterruptedException {
+        IngestionResult result = IngestionResult.builder().build();
+        while (true) {
+            List<Product> batch = buffer.take();
+            if (batch == END) {
+                return result;
+            }
+            add(result, ingest.apply(batch));
+        }
+    }
+
+    @Override
+    public void accept(List<Product> batch) throws InterruptedException {
+        if (finished) {
+            throw new IllegalStateException("Ingestion stream is already finished");
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        received += batch.size();
+        List<Product> copy = new ArrayList<>(batch);
+        if (consumer == null) {
+            add(total, ingest.apply(copy));
+            return;
+        }
+        if (buffer.offer(copy)) {
+            return;
+        }
+        // Буфер полон: ждем места, но не дольше жизни потребителя
+        long waitStart = System.nanoTime();
+        while (!buffer.offer(copy, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (consumer.isDone()) {
+                awaitConsumer();
+                throw new IllegalStateException("Ingestion consumer stopped before the end of the stream");
+            }
+        }
+        timeline.record(ScrapeTimeline.PERSIST_WAIT, waitStart, copy.size());
+    }
+
+    /**
+     * Товаров получено от парсера (включая повторы)
+     */
+    public int getReceived() {
+        return received;
+    }
+
+    /**
+     * Дождаться сохранения всех пачек и получить итог
+     */
+    public IngestionResult finish() throws InterruptedException {
+        if (!finished) {
+            finished = true;
+            if (consumer != null) {
+                while (!buffer.offer(END, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (consumer.isDone()) {
+                        break;
+                    }
+                }
+                add(total, awaitConsumer());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Закрыть поток без ожидания (например, при ошибке парсера).
+     * Уже принятые пачки потребитель дописывает в фоне, если в буфере есть место для маркера конца.
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            finished = true;
+            if (consumer != null && !buffer.offer(END)) {
+                consumer.cancel(true);
+            }
+        }
+    }
+
+    private IngestionResult awaitConsumer() throws InterruptedException {
+        try {
+            return consumer.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ingestion consumer failed", e.getCause());
+        }
+    }
+
+    private static void add(IngestionResult target, IngestionResult batch) {
+        target.setInserted(target.getInserted() + batch.getInserted());
+        target.setUpdated(target.getUpdated() + batch.getUpdated());
+        target.setUnchanged(target.getUnchanged() + batch.getUnchanged());
+        target.setFailed(target.getFailed() + batch.getFailed());
+    }
+}
@@ -1,146 +1,238 @@
 package org.example.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.CacheConfig;
 import org.example.entity.Product;
+import org.example.entity.Shop;
 import org.example.repository.ProductRepository;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.example.service.ParsingRunService.ParsingRun;
+import org.example.service.ProductIngestionService.IngestionResult;
+import org.example.util.ParsingMetrics;
+import org.example.util.ScrapeTimeline;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.example.entity.Shop.LAVKA;
 import static org.example.entity.Shop.SAMOKAT;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class IntegratedParsingService {
 
-    private final LavkaParserService lavkaParserService;
-    private final SamokatParserService samokatParserService;
+    private final List<Parserable> parsers;
     private final ProductRepository productRepository;
+    private final ProductIngestionService ingestionService;
+    private final CrawlService crawlService;
+    private final AsyncTaskExecutor parsingExecutor;
+    private final Duration shopTimeout;
+    private final ParsingMetrics metrics;
+    private final ParsingRunService runService;
+
+    public IntegratedParsingService(ParserRegistry parserRegistry,
+                                    ProductRepository productRepository,
+                                    ProductIngestionService ingestionService,
+                                    CrawlService crawlService,
+                                    @Qualifier("parsingExecutor") AsyncTaskExecutor parsingExecutor,
+                                    @Value("${app.parsing.shop-timeout:20m}") Duration shopTimeout,
+                                    ParsingMetrics metrics,
+                                    ParsingRunService runService) {
+        this.parsers = parserRegistry.getParsers();
+        this.productRepository = productRepository;
+        this.ingestionService = ingestionService;
+        this.crawlService = crawlService;
+        this.parsingExecutor = parsingExecutor;
+        this.shopTimeout = shopTimeout;
+        this.metrics = metrics;
+        this.runService = runService;
+    }
 
     /**
-     * Основной метод парсинга всех магазинов
+     * Основной метод парсинга всех магазинов.
+     * Каждый зарегистрированный парсер запускается параллельно в отдельном пуле,
+     * ошибка или таймаут одного магазина не влияет на остальные.
      */
-    @Transactional
-    public void parseAllShops() {
-        log.info("Starting integrated parsing of all shops");
+    public ParsingResult parseAllShops() {
+        return parseShops(getShops(), ParsingProgress.NONE);
+    }
 
-        try {
-            List<Product> allProducts = new ArrayList<>();
+    /**
+     * Парсинг выбранных магазинов с отчетом о ходе работы.
+     * Прерывание вызывающего потока отменяет парсинг всех еще не завершенных магазинов.
+     */
+    public ParsingResult parseShops(Collection<Shop> shops, ParsingProgress progress) {
+        log.info("Starting integrated parsing of {} shops", shops.size());
+        long start = System.nanoTime();
 
-            // Парсим Лавку
-//            log.info("Parsing Lavka...");
-//            List<Product> lavkaProducts = lavkaParserService.getProducts();
-//            allProducts.addAll(lavkaProducts);
-//            log.info("Lavka parsing completed: {} products", lavkaProducts.size());
+        Map<Shop, Future<ShopResult>> futures = new LinkedHashMap<>();
+        Map<Shop, ParsingRun> runs = new LinkedHashMap<>();
+        Map<Shop, AtomicBoolean> claims = new LinkedHashMap<>();
+        for (Shop shop : shops) {
+            Parserable parser = getParser(shop);
+            ParsingRun run = runService.create(shop);
+            runs.put(shop, run);
+            // Кто первым займет магазин: поток парсера при запуске или ожидающий поток при таймауте/отмене
+            AtomicBoolean claimed = new AtomicBoolean();
+            claims.put(shop, claimed);
+            futures.put(shop, parsingExecutor.submit(() -> {
+                progress.shopStarted(shop);
+                try {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return ShopResult.failed(shop, ShopStatus.CANCELLED, "Cancelled before start");
+                    }
+                    return timedParseShop(parser, run);
+                } finally {
+                    progress.shopReleased(shop);
+                }
+            }));
+        }
 
-            // Парсим Самокат
-            log.info("Parsing Samokat...");
-            List<Product> samokatProducts = samokatParserService.getProducts();
-            allProducts.addAll(samokatProducts);
-            log.info("Samokat parsing completed: {} products", samokatProducts.size());
+        long deadline = start + effectiveShopTimeout().toNanos();
+        List<ShopResult> results = new ArrayList<>();
+        for (Map.Entry<Shop, Future<ShopResult>> entry : futures.entrySet()) {
+            ShopResult shopResult = awaitShop(entry.getKey(), entry.getValue(), claims.get(entry.getKey()), deadline);
+            ParsingRun run = runs.get(entry.getKey());
+            // Прогон, не дождавшийся результата (таймаут, отмена), завершается здесь; поток парсера может еще дописывать его
+            runService.finish(run, shopResult.getStatus(), shopResult.getProductsFound());
+            shopResult.setRunId(run.getId());
+            progress.shopFinished(shopResult);
+            results.add(shopResult);
+        }
 
-            // Сохраняем все продукты
-            saveProducts(allProducts);
+        ParsingResult result = ParsingResult.builder()
+                .shops(results)
+                .totalProducts(results.stream().mapToInt(ShopResult::getProductsFound).sum())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
 
-            log.info("Integrated parsing completed successfully. Total products: {}", allProducts.size());
+        log.info("Integrated parsing completed in {} ms. Total products: {}", result.getDurationMs(), result.getTotalProducts());
+        return result;
+    }
 
+    /**
+     * Ожидание парсера магазина. При таймауте или отмене парсер прерывается; еще не начавшийся парсер уже не начнется,
+     * а начавшийся может остановиться позже - об этом сообщит ParsingProgress.shopReleased.
+     */
+    private ShopResult awaitShop(Shop shop, Future<ShopResult> future, AtomicBoolean claimed, long deadline) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            claimed.compareAndSet(false, true);
+            future.cancel(true);
+            log.error("{} parsing timed out after {}", shop, effectiveShopTimeout());
+            return ShopResult.failed(shop, ShopStatus.TIMEOUT, "Timed out after " + effectiveShopTimeout());
+        } catch (ExecutionException e) {
+            log.error("Error during {} parsing", shop, e.getCause());
+            return ShopResult.failed(shop, ShopStatus.FAILED, e.getCause().getMessage());
         } catch (InterruptedException e) {
-            log.error("Parsing was interrupted", e);
+            claimed.compareAndSet(false, true);
+            future.cancel(true);
             Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            log.error("Error during parsing", e);
+            return ShopResult.failed(shop, ShopStatus.CANCELLED, "Cancelled");
         }
     }
 
     /**
-     * Асинхронный парсинг Лавки
+     * При обходе каталога окно обхода ограничивает начало новых категорий, shop-timeout остается запасом на последнюю
      */
-    @Async
-    public void parseLavkaAsync() {
-        try {
-            log.info("Starting async Lavka parsing");
-            List<Product> products = lavkaParserService.getProducts();
-            saveProducts(products);
-            log.info("Async Lavka parsing completed: {} products", products.size());
-        } catch (Exception e) {
-            log.error("Error in async Lavka parsing", e);
-        }
+    private Duration effectiveShopTimeout() {
+        return crawlService.isEnabled() ? crawlService.getWindow().plus(shopTimeout) : shopTimeout;
     }
 
     /**
-     * Асинхронный парсинг Самоката
+     * Парсинг магазина с записью времени и числа карточек в метрики и хронологию прогона (в том числе при ошибке или отмене)
      */
-    @Async
-    public void parseSamokatAsync() {
-        try {
-            log.info("Starting async Samokat parsing");
-            List<Product> products = samokatParserService.getProducts();
-            saveProducts(products);
-            log.info("Async Samokat parsing completed: {} products", products.size());
-        } catch (Exception e) {
-            log.error("Error in async Samokat parsing", e);
+    private ShopResult timedParseShop(Parserable parser, ParsingRun run) throws InterruptedException {
+        long start = System.nanoTime();
+        ShopStatus status = ShopStatus.FAILED;
+        int found = 0;
+        run.started();
+        try (ScrapeTimeline.Scope scope = run.getTimeline().attach()) {
+            ShopResult result = parseShop(parser);
+            status = result.getStatus();
+            found = result.getProductsFound();
+            return result;
+        } catch (InterruptedException e) {
+            status = ShopStatus.CANCELLED;
+            throw e;
+        } finally {
+            metrics.shopParsed(parser.getShop(), status.name(), System.nanoTime() - start, found);
+            runService.finish(run, status, found);
         }
     }
 
     /**
-     * Запланированный парсинг каждые 2 часа
+     * Парсинг и сохранение одного магазина: обход категорий из фронтира или одна категория по умолчанию
      */
-    @Scheduled(fixedRate = 7200000) // 2 часа
-    public void scheduledParsing() {
-        log.info("Starting scheduled parsing");
-        parseAllShops();
+    private ShopResult parseShop(Parserable parser) throws InterruptedException {
+        if (crawlService.isEnabled()) {
+            CrawlService.ShopCrawlResult crawl = crawlService.crawlShop(parser);
+            return ShopResult.builder()
+                    .shop(parser.getShop())
+                    .status(ShopStatus.SUCCESS)
+                    .productsFound(crawl.getProductsFound())
+                    .inserted(crawl.getInserted())
+                    .updated(crawl.getUpdated())
+                    .unchanged(crawl.getUnchanged())
+                    .durationMs(crawl.getDurationMs())
+                    .build();
+        }
+
+        long start = System.nanoTime();
+        log.info("Parsing {}...", parser.getShop());
+        int found;
+        IngestionResult ingestion;
+        try (IngestionStream stream = ingestionService.openStream()) {
+            parser.streamProducts(parser.getDefaultCategoryUrl(), stream);
+            ingestion = stream.finish();
+            found = stream.getReceived();
+        }
+        log.info("{} parsing completed: {} products", parser.getShop(), found);
+
+        return ShopResult.builder()
+                .shop(parser.getShop())
+                .status(ShopStatus.SUCCESS)
+                .productsFound(found)
+                .inserted(ingestion.getInserted())
+                .updated(ingestion.getUpdated())
+                .unchanged(ingestion.getUnchanged())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
     }
 
     /**
-     * Сохранение продуктов с проверкой на дубликаты
+     * Магазины, для которых зарегистрирован парсер
      */
-    @Transactional
-    protected void saveProducts(List<Product> products) {
-        int savedCount = 0;
-        int updatedCount = 0;
-
-        for (Product product : products) {
-            try {
-                // Ищем существующий продукт по ссылке
-                Optional<Product> existingProduct = productRepository.findByRef(product.getRef());
-
-                if (existingProduct.isPresent()) {
-                    // Обновляем существующий продукт
-                    Product existing = existingProduct.get();
-                    existing.setTitle(product.getTitle());
-                    existing.setOldPriceStr(product.getOldPriceStr());
-                    existing.setNewPriceStr(product.getNewPriceStr());
-                    existing.setVolume(product.getVolume());
-                    existing.setShop(product.getShop());
-                    existing.setUpdatedAt(LocalDateTime.now());
-
-                    productRepository.save(existing);
-                    updatedCount++;
-                } else {
-                    // Сохраняем новый продукт
-                    productRepository.save(product);
-                    savedCount++;
-                }
-            } catch (Exception e) {
-                log.error("Error saving product: {}", product.getTitle(), e);
-            }
-        }
+    public List<Shop> getShops() {
+        return parsers.stream().map(Parserable::getShop).toList();
+    }
 
-        log.info("Products processed: {} new, {} updated", savedCount, updatedCount);
+    private Parserable getParser(Shop shop) {
+        return parsers.stream()
+                .filter(parser -> parser.getShop() == shop)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No parser registered for shop: " + shop));
     }
 
     /**
      * Получение статистики парсинга
      */
+    @Cacheable(value = CacheConfig.PARSING_STATS, key = "'all'")
     public ParsingStats getParsingStats() {
         long totalProducts = productRepository.count();
         long lavkaProducts = productRepository.countByShop(LAVKA);
@@ -167,4 +259,48 @@ public class IntegratedParsingService {
         private long samokatProducts;
         private LocalDateTime lastUpdate;
     }
+
+    public enum ShopStatus {
+        SUCCESS, FAILED, TIMEOUT, CANCELLED
+    }
+
+    /**
+     * Результат парсинга одного магазина
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class ShopResult {
+        private Shop shop;
+        private ShopStatus status;
+        private int productsFound;
+        private int inserted;
+        private int updated;
+        private int unchanged;
+        private long durationMs;
+        private String error;
+        private String runId;          // Профиль прогона: GET /api/parsing/runs/{runId}
+
+        static ShopResult failed(Shop shop, ShopStatus status, String error) {
+            return ShopResult.builder()
+                    .shop(shop)
+                    .status(status)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    /**
+     * Общий результат параллельного парсинга
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class ParsingResult {
+        private List<ShopResult> shops;
+        private int totalProducts;
+        private long durationMs;
+
+        public boolean isSuccessful() {
+            return shops.stream().allMatch(shop -> shop.getStatus() == ShopStatus.SUCCESS);
+        }
+    }
 }
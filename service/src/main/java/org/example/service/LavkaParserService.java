@@ -1,147 +1,147 @@
 package org.example.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.entity.Product;
 import org.example.entity.Shop;
-import org.example.util.DriverUtils;
-import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
+import org.example.util.DomExtraction;
+import org.example.util.PageReadiness;
+import org.example.util.ParsingMetrics;
+import org.example.util.ProductAccumulator;
+import org.example.util.WebDriverPool;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class LavkaParserService implements Parserable {
 
     private static final String URL = "https://lavka.yandex.ru/catalog/grocery/category/water";
 
+    private static final String CARD_SELECTOR = "[class=\"p19kkpiw\"]";
+
+    // Сколько шагов прокрутки у конца страницы без новых карточек считаем окончанием списка
+    private static final int STABLE_SCROLL_STEPS = 2;
+
+    // Поля карточек; отсутствующий элемент дает null, такие карточки пропускаются
+    private static final String EXTRACT_CARDS_SCRIPT = """
+            const text = el => el ? el.innerText : null;
+            return Array.from(document.querySelectorAll(arguments[0]), card => {
+                const link = card.querySelector('[data-type="product-card-link"]');
+                return {
+                    ref: link ? link.href : null,
+                    title: text(card.querySelector('[class="t13q9bt7 t18stym3 bw441np r88klks r1dbrdpx n10d4det l14lhr1r"]')),
+                    volume: text(card.querySelector('[class="m12g4kzj"]')),
+                    priceDiscount: text(card.querySelector('[class="b15aiivf t18stym3 b1clo64h m493tk9 m1fg51qz tnicrlv l14lhr1r"]')),
+                    price: text(card.querySelector('[class="t18stym3 bw441np r88klks r1dbrdpx t1dh4tmf l14lhr1r"]'))
+                };
+            });
+            """;
+
+    private final WebDriverPool driverPool;
+    private final PageReadiness readiness;
+    private final ParsingMetrics metrics;
+
     @Override
-    public List<Product> getProducts() throws InterruptedException {
-        WebDriver driver = DriverUtils.getDriver();
-        try {
-            log.info("Starting Lavka parsing from URL: {}", URL);
-            driver.get(URL);
-            Thread.sleep(15000);
-
-            Set<String> seenRefs = new HashSet<>();
-            List<Product> products = new ArrayList<>();
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-
-            int stableRepeats = 0, prevCount = 0, maxRepeats = 4;
-
-            while (stableRepeats < maxRepeats) {
-                List<WebElement> elems = driver.findElements(By.cssSelector("[class=\"p19kkpiw\"]"));
-
-                for (WebElement card : elems) {
-                    try {
-                        String ref = card
-                                .findElement(By.cssSelector("[data-type=\"product-card-link\"]"))
-                                .getDomProperty("href");
-
-                        String title = card
-                                .findElement(By.cssSelector("[class=\"t13q9bt7 t18stym3 bw441np r88klks r1dbrdpx n10d4det l14lhr1r\"]"))
-                                .getText().replaceAll("[\\p{Pd}\\u00AD\\u200B]", "");
-
-                        String volume = card.findElement(By.cssSelector("[class=\"m12g4kzj\"]")).getText();
-
-                        if (!seenRefs.contains(ref) && !title.isBlank()) {
-                            seenRefs.add(ref);
-
-                            String priceDiscount = card
-                                    .findElement(By.cssSelector("[class=\"b15aiivf t18stym3 b1clo64h m493tk9 m1fg51qz tnicrlv l14lhr1r\"]"))
-                                    .getText();
-
-                            String price = card
-                                    .findElement(By.cssSelector("[class=\"t18stym3 bw441np r88klks r1dbrdpx t1dh4tmf l14lhr1r\"]"))
-                                    .getText();
-
-                            Product product = Product.builder()
-                                    .title(title)
-                                    .oldPriceStr(price)  // Основная цена
-                                    .newPriceStr(priceDiscount)  // Цена со скидкой
-                                    .volume(volume)
-                                    .ref(ref)
-                                    .shop(Shop.LAVKA)
-                                    .build();
-
-                            products.add(product);
-
-                        } else if (seenRefs.contains(ref) && !title.isBlank() && volume != null) {
-                            // Обновляем объем для существующего продукта
-                            products.stream()
-                                    .filter(p -> p.getRef().equals(ref))
-                                    .forEach(p -> p.setVolume(volume));
-                        }
-                    } catch (Exception e) {
-                        log.debug("Error parsing product card: {}", e.getMessage());
-                    }
-                }
+    public Shop getShop() {
+        return Shop.LAVKA;
+    }
 
-                if (products.size() == prevCount) {
-                    stableRepeats++;
-                } else {
-                    stableRepeats = 0;
-                    prevCount = products.size();
-                }
+    @Override
+    public String getDefaultCategoryUrl() {
+        return URL;
+    }
 
-                js.executeScript("window.scrollBy(0,850);");
-                Thread.sleep(200);
+    @Override
+    public List<Product> getProducts(String categoryUrl) throws InterruptedException {
+        // Повторно пришедшие карточки (с догруженным объемом) сливаются с прежними
+        ProductAccumulator products = new ProductAccumulator();
+        streamProducts(categoryUrl, products::mergeAll);
+        return products.getProducts();
+    }
+
+    /**
+     * Карточки отдаются пачкой на каждом шаге прокрутки: новые товары и товары, у которых изменился объем
+     */
+    @Override
+    public void streamProducts(String categoryUrl, ProductSink sink) throws InterruptedException {
+        WebDriver driver = driverPool.borrow();
+        try {
+            log.info("Starting Lavka parsing from URL: {}", categoryUrl);
+            ProductAccumulator products = new ProductAccumulator();
+            // Карточки, которые так и остались неполными (повторы при прокрутке считаются один раз)
+            Set<String> incomplete = new HashSet<>();
+
+            if (!readiness.open(driver, categoryUrl, CARD_SELECTOR)) {
+                log.info("No product cards on Lavka page {}", categoryUrl);
+                return;
             }
 
-            // Финальный проход для дозагрузки
-            Thread.sleep(500);
-            List<WebElement> finalElements = driver.findElements(By.cssSelector("[class=\"p19kkpiw\"]"));
-
-            for (WebElement card : finalElements) {
-                try {
-                    String ref = card
-                            .findElement(By.cssSelector("[data-type=\"product-card-link\"]"))
-                            .getDomProperty("href");
-
-                    String title = card
-                            .findElement(By.cssSelector("[class=\"t13q9bt7 t18stym3 bw441np r88klks r1dbrdpx n10d4det l14lhr1r\"]"))
-                            .getText().replaceAll("[\\p{Pd}\\u00AD\\u200B]", "");
-
-                    if (!seenRefs.contains(ref) && !title.isBlank()) {
-                        seenRefs.add(ref);
-
-                        String priceDiscount = card
-                                .findElement(By.cssSelector("[class=\"b15aiivf t18stym3 b1clo64h m493tk9 m1fg51qz tnicrlv l14lhr1r\"]"))
-                                .getText();
-
-                        String price = card
-                                .findElement(By.cssSelector("[class=\"t18stym3 bw441np r88klks r1dbrdpx t1dh4tmf l14lhr1r\"]"))
-                                .getText();
-
-                        String volume = card.findElement(By.cssSelector("[class=\"m12g4kzj\"]")).getText();
-
-                        Product product = Product.builder()
-                                .title(title)
-                                .oldPriceStr(price)
-                                .newPriceStr(priceDiscount)
-                                .volume(volume)
-                                .ref(ref)
-                                .shop(Shop.LAVKA)
-                                .build();
-
-                        products.add(product);
-                    }
-                } catch (Exception e) {
-                    log.debug("Error in final parsing: {}", e.getMessage());
+            // Карточки собираются на каждом шаге прокрутки: список подгружается по мере прокрутки
+            readiness.scrollUntilStable(driver, CARD_SELECTOR, STABLE_SCROLL_STEPS,
+                    () -> {
+                        collectCards(driver, products, incomplete);
+                        sink.accept(products.drainChanged());
+                    });
+
+            incomplete.removeIf(products::contains);
+            metrics.cardErrors(Shop.LAVKA, "incomplete", incomplete.size());
+            log.info("Lavka parsing completed. Found {} products, {} incomplete cards skipped", products.size(), incomplete.size());
+
+        } finally {
+            driverPool.release(driver);
+        }
+    }
+
+    private void collectCards(WebDriver driver, ProductAccumulator products, Set<String> incomplete) {
+        // Все видимые карточки одним вызовом executeScript на шаг прокрутки
+        for (Map<String, Object> card : DomExtraction.extractAll(driver, EXTRACT_CARDS_SCRIPT, CARD_SELECTOR)) {
+            String ref = DomExtraction.text(card, "ref");
+            String rawTitle = DomExtraction.text(card, "title");
+            String volume = DomExtraction.text(card, "volume");
+            if (ref == null || rawTitle == null || volume == null) {
+                if (ref != null) {
+                    incomplete.add(ref);
                 }
+                continue;
+            }
+            String title = rawTitle.replaceAll("[\\p{Pd}\\u00AD\\u200B]", "");
+            if (title.isBlank()) {
+                incomplete.add(ref);
+                continue;
             }
 
-            log.info("Lavka parsing completed. Found {} products", products.size());
-            return products;
+            if (!products.contains(ref)) {
+                String priceDiscount = DomExtraction.text(card, "priceDiscount");
+                String price = DomExtraction.text(card, "price");
+                if (priceDiscount == null || price == null) {
+                    incomplete.add(ref);
+                    continue;
+                }
 
-        } finally {
-            driver.quit();
+                products.merge(Product.builder()
+                        .title(title)
+                        .oldPriceStr(price)  // Основная цена
+                        .newPriceStr(priceDiscount)  // Цена со скидкой
+                        .volume(volume)
+                        .ref(ref)
+                        .shop(Shop.LAVKA)
+                        .build());
+
+            } else {
+                // Обновляем объем для существующего продукта; изменившийся товар уйдет в следующую пачку
+                products.merge(Product.builder()
+                        .volume(volume)
+                        .ref(ref)
+                        .shop(Shop.LAVKA)
+                        .build());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.HttpScrapingProperties;
+import org.example.configuration.HttpScrapingProperties.ShopApi;
+import org.example.entity.Shop;
+import org.example.util.ParsingMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Парсеры магазинов с выбранным backend'ом: если для магазина включен JSON API (app.http-scraping.shops.*),
+ * браузерный парсер остается запасным вариантом за HTTP-парсером.
+ */
+@Component
+@Slf4j
+public class ParserRegistry {
+
+    private final List<Parserable> parsers = new ArrayList<>();
+
+    public ParserRegistry(List<Parserable> browserParsers,
+                          HttpScrapingProperties properties,
+                          @Qualifier("scrapingHttpClient") HttpClient httpClient,
+                          ObjectMapper objectMapper,
+                          ParsingMetrics metrics) {
+        for (Parserable browserParser : browserParsers) {
+            ShopApi api = properties.forShop(browserParser.getShop());
+            if (api != null && api.isEnabled() && api.getUrlTemplate() != null) {
+                HttpJsonParser httpParser = new HttpJsonParser(browserParser.getShop(), browserParser.getDefaultCategoryUrl(),
+                        api, httpClient, objectMapper, properties.getRequestTimeout(), properties.getMaxConcurrentRequests(), metrics);
+                parsers.add(new FallbackParser(httpParser, browserParser, metrics));
+                log.info("{} is parsed through the JSON API with the browser as fallback", browserParser.getShop());
+            } else {
+                parsers.add(browserParser);
+            }
+        }
+    }
+
+    public List<Parserable> getParsers() {
+        return parsers;
+    }
+
+    public Parserable getParser(Shop shop) {
+        return parsers.stream()
+                .filter(parser -> parser.getShop() == shop)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No parser registered for shop: " + shop));
+    }
+}
@@ -1,9 +1,28 @@
 package org.example.service;
 
 import org.example.entity.Product;
+import org.example.entity.Shop;
 
 import java.util.List;
 
 public interface Parserable {
-    List<Product> getProducts() throws InterruptedException;
-}
\ No newline at end of file
+
+    // Магазин, который обслуживает парсер
+    Shop getShop();
+
+    // Категория по умолчанию: с нее начинается фронтир обхода, если в каталоге ничего не найдено
+    String getDefaultCategoryUrl();
+
+    // Товары одной страницы категории
+    List<Product> getProducts(String categoryUrl) throws InterruptedException;
+
+    default List<Product> getProducts() throws InterruptedException {
+        return getProducts(getDefaultCategoryUrl());
+    }
+
+    // Товары категории пачками по мере парсинга; по умолчанию - одной пачкой после полного разбора страницы.
+    // Товар может прийти повторно, если его карточка догрузилась позже (например, появился объем).
+    default void streamProducts(String categoryUrl, ProductSink sink) throws InterruptedException {
+        sink.accept(getProducts(categoryUrl));
+    }
+}
@@ -0,0 +1,316 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Shop;
+import org.example.service.IntegratedParsingService.ParsingResult;
+import org.example.service.IntegratedParsingService.ShopResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+/**
+ * Задания парсинга: запуск в фоне с идентификатором, ходом работы и отменой.
+ * Магазин одновременно парсится только одним заданием - повторный запуск (из API или по расписанию)
+ * получает уже идущее задание, а не начинает второй обход. После таймаута или отмены магазин остается
+ * за заданием, пока его парсер действительно не остановится.
+ */
+@Service
+@Slf4j
+public class ParsingJobService {
+
+    private final IntegratedParsingService parsingService;
+    private final AsyncTaskExecutor jobExecutor;
+    private final boolean scheduleEnabled;
+    private final int retainedJobs;
+
+    private final Map<String, ParsingJob> jobs = new ConcurrentHashMap<>();
+    // Завершенные задания в порядке завершения: старые удаляются сверх retained
+    private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+    // Магазин -> задание, которое его сейчас парсит или чей парсер еще не остановился (под блокировкой сервиса)
+    private final Map<Shop, ParsingJob> activeByShop = new EnumMap<>(Shop.class);
+
+    public ParsingJobService(IntegratedParsingService parsingService,
+                             @Qualifier("parsingJobExecutor") AsyncTaskExecutor jobExecutor,
+                             @Value("${app.parsing.schedule.enabled:true}") boolean scheduleEnabled,
+                             @Value("${app.parsing.jobs.retained:50}") int retainedJobs) {
+        this.parsingService = parsingService;
+        this.jobExecutor = jobExecutor;
+        this.scheduleEnabled = scheduleEnabled;
+        this.retainedJobs = Math.max(1, retainedJobs);
+    }
+
+    /**
+     * Запуск парсинга магазинов в фоне. Магазины, которые уже парсятся, в новое задание не попадают;
+     * если заняты все - возвращается идущее задание.
+     */
+    public synchronized JobView submit(Collection<Shop> shops, JobTrigger trigger) {
+        Set<Shop> free = new LinkedHashSet<>();
+        for (Shop shop : shops) {
+            if (!activeByShop.containsKey(shop)) {
+                free.add(shop);
+            }
+        }
+        if (free.isEmpty()) {
+            ParsingJob running = activeByShop.get(shops.iterator().next());
+            log.info("Parsing of {} is already running in job {}, {} trigger joined it", shops, running.id, trigger);
+            return running.view();
+        }
+
+        ParsingJob job = new ParsingJob(UUID.randomUUID().toString(), new ArrayList<>(free), trigger);
+        jobs.put(job.id, job);
+        free.forEach(shop -> activeByShop.put(shop, job));
+        try {
+            job.future = jobExecutor.submit(() -> run(job));
+            log.info("Parsing job {} queued for {} ({})", job.id, job.shops, trigger);
+        } catch (TaskRejectedException e) {
+            complete(job, JobStatus.FAILED, null, "Too many parsing jobs, try again later");
+        }
+        return job.view();
+    }
+
+    public Optional<JobView> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(ParsingJob::view);
+    }
+
+    /**
+     * Задания, начиная с последних созданных
+     */
+    public List<JobView> getJobs() {
+        return jobs.values().stream()
+                .map(ParsingJob::view)
+                .sorted(Comparator.comparing(JobView::getCreatedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Отмена задания: ожидающее в очереди не запустится, у идущего прерываются парсеры магазинов
+     */
+    public synchronized Optional<JobView> cancel(String id) {
+        ParsingJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        JobStatus status = job.status();
+        if (status == JobStatus.QUEUED || status == JobStatus.RUNNING) {
+            log.info("Cancelling parsing job {}", id);
+            job.cancelRequested = true;
+            job.future.cancel(true);
+            if (status == JobStatus.QUEUED) {
+                complete(job, JobStatus.CANCELLED, null, null);
+            }
+        }
+        return Optional.of(job.view());
+    }
+
+    /**
+     * Запланированный парсинг всех магазинов (по умолчанию каждые 2 часа)
+     */
+    @Scheduled(initialDelayString = "${app.parsing.schedule.initial-delay:PT1M}",
+            fixedRateString = "${app.parsing.schedule.rate:PT2H}")
+    public void scheduledParsing() {
+        if (scheduleEnabled) {
+            submit(parsingService.getShops(), JobTrigger.SCHEDULED);
+        }
+    }
+
+    private void run(ParsingJob job) {
+        job.started();
+        try {
+            ParsingResult result = parsingService.parseShops(job.shops, progressOf(job));
+            boolean cancelled = job.cancelRequested || Thread.currentThread().isInterrupted();
+            complete(job, cancelled ? JobStatus.CANCELLED : JobStatus.COMPLETED, result, null);
+        } catch (Exception e) {
+            log.error("Parsing job {} failed", job.id, e);
+            complete(job, JobStatus.FAILED, null, e.getMessage());
+        }
+    }
+
+    private ParsingProgress progressOf(ParsingJob job) {
+        return new ParsingProgress() {
+            @Override
+            public void shopStarted(Shop shop) {
+                job.shopStarted(shop);
+            }
+
+            @Override
+            public void shopFinished(ShopResult shopResult) {
+                job.shopFinished(shopResult);
+            }
+
+            @Override
+            public void shopReleased(Shop shop) {
+                parserStopped(job, shop);
+            }
+        };
+    }
+
+    // Парсер магазина остановился: если задание уже завершено, магазин можно отдавать следующему
+    private synchronized void parserStopped(ParsingJob job, Shop shop) {
+        job.shopReleased(shop);
+        if (job.status() != JobStatus.QUEUED && job.status() != JobStatus.RUNNING) {
+            activeByShop.remove(shop, job);
+        }
+    }
+
+    private synchronized void complete(ParsingJob job, JobStatus status, ParsingResult result, String error) {
+        if (!job.finish(status, result, error)) {
+            return;
+        }
+        // Магазины с еще работающим парсером (таймаут, отмена) освободит parserStopped
+        Set<Shop> stillRunning = job.parsersRunning();
+        job.shops.stream()
+                .filter(shop -> !stillRunning.contains(shop))
+                .forEach(shop -> activeByShop.remove(shop, job));
+        if (stillRunning.isEmpty()) {
+            log.info("Parsing job {} finished: {}", job.id, status);
+        } else {
+            log.warn("Parsing job {} finished: {}, parsers of {} are still stopping", job.id, status, stillRunning);
+        }
+
+        finished.add(job.id);
+        while (finished.size() > retainedJobs) {
+            jobs.remove(finished.poll());
+        }
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    public enum JobTrigger {
+        API, SCHEDULED
+    }
+
+    /**
+     * Состояние задания; ход работы обновляется из потоков парсинга магазинов
+     */
+    private static final class ParsingJob {
+        private final String id;
+        private final List<Shop> shops;
+        private final JobTrigger trigger;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final Map<Shop, String> shopStates = new LinkedHashMap<>();
+        private final Set<Shop> parsersRunning = EnumSet.noneOf(Shop.class);
+        private volatile Future<?> future;
+        private volatile boolean cancelRequested;
+
+        private JobStatus status = JobStatus.QUEUED;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private int shopsFinished;
+        private int productsFound;
+        private ParsingResult result;
+        private String error;
+
+        ParsingJob(String id, List<Shop> shops, JobTrigger trigger) {
+            this.id = id;
+            this.shops = List.copyOf(shops);
+            this.trigger = trigger;
+            shops.forEach(shop -> shopStates.put(shop, "PENDING"));
+        }
+
+        synchronized JobStatus status() {
+            return status;
+        }
+
+        synchronized void started() {
+            if (status == JobStatus.QUEUED) {
+                status = JobStatus.RUNNING;
+                startedAt = LocalDateTime.now();
+            }
+        }
+
+        synchronized void shopStarted(Shop shop) {
+            shopStates.put(shop, "RUNNING");
+            parsersRunning.add(shop);
+        }
+
+        synchronized void shopReleased(Shop shop) {
+            parsersRunning.remove(shop);
+        }
+
+        synchronized Set<Shop> parsersRunning() {
+            return EnumSet.copyOf(parsersRunning);
+        }
+
+        synchronized void shopFinished(ShopResult shopResult) {
+            shopStates.put(shopResult.getShop(), shopResult.getStatus().name());
+            shopsFinished++;
+            productsFound += shopResult.getProductsFound();
+        }
+
+        // false - задание уже было завершено
+        synchronized boolean finish(JobStatus finalStatus, ParsingResult parsingResult, String failure) {
+            if (status != JobStatus.QUEUED && status != JobStatus.RUNNING) {
+                return false;
+            }
+            status = finalStatus;
+            finishedAt = LocalDateTime.now();
+            result = parsingResult;
+            error = failure;
+            return true;
+        }
+
+        synchronized JobView view() {
+            return JobView.builder()
+                    .id(id)
+                    .shops(shops)
+                    .trigger(trigger)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .shopsTotal(shops.size())
+                    .shopsFinished(shopsFinished)
+                    .productsFound(productsFound)
+                    .shopStates(new LinkedHashMap<>(shopStates))
+                    .parsersRunning(List.copyOf(parsersRunning))
+                    .result(result)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    /**
+     * Снимок задания для API
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class JobView {
+        private String id;
+        private List<Shop> shops;
+        private JobTrigger trigger;
+        private JobStatus status;
+        private LocalDateTime createdAt;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private int shopsTotal;
+        private int shopsFinished;
+        private int productsFound;             // По завершенным магазинам
+        private Map<Shop, String> shopStates;  // PENDING, RUNNING или итоговый статус магазина
+        private List<Shop> parsersRunning;     // Парсеры, которые еще работают (в том числе после таймаута или отмены)
+        private ParsingResult result;
+        private String error;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.service;
+
+import org.example.entity.Shop;
+import org.example.service.IntegratedParsingService.ShopResult;
+
+/**
+ * Ход парсинга магазинов; методы вызываются из потоков парсинга
+ */
+public interface ParsingProgress {
+
+    ParsingProgress NONE = new ParsingProgress() {
+    };
+
+    default void shopStarted(Shop shop) {
+    }
+
+    default void shopFinished(ShopResult result) {
+    }
+
+    // Поток парсера магазина остановился; после таймаута или отмены это может случиться позже shopFinished.
+    // Вызывается только для магазинов, для которых был вызван shopStarted
+    default void shopReleased(Shop shop) {
+    }
+}
@@ -0,0 +1,317 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Shop;
+import org.example.service.IntegratedParsingService.ShopStatus;
+import org.example.util.ScrapeTimeline;
+import org.example.util.ScrapeTimeline.PhaseSummary;
+import org.example.util.ScrapeTimeline.Span;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Профили прогонов парсинга магазинов: хронология фаз каждого прогона и сравнение с предыдущими прогонами того же магазина.
+ * Хранятся последние retained прогонов в памяти. Базой сравнения служит медиана baseline-runs предыдущих успешных прогонов,
+ * так что одиночный медленный прогон не сбивает базу; фаза считается регрессией,
+ * если стала дольше базы больше чем на regression-threshold и хотя бы на regression-min-diff.
+ */
+@Service
+@Slf4j
+public class ParsingRunService {
+
+    private final int retainedRuns;
+    private final int maxSpans;
+    private final int baselineRuns;
+    private final double regressionThreshold;
+    private final long regressionMinDiffMs;
+
+    // От новых к старым (под блокировкой сервиса)
+    private final Deque<ParsingRun> runs = new ArrayDeque<>();
+    private final Map<String, ParsingRun> byId = new HashMap<>();
+
+    public ParsingRunService(@Value("${app.parsing.runs.retained:100}") int retainedRuns,
+                             @Value("${app.parsing.runs.max-spans:5000}") int maxSpans,
+                             @Value("${app.parsing.runs.baseline-runs:5}") int baselineRuns,
+                             @Value("${app.parsing.runs.regression-threshold:0.5}") double regressionThreshold,
+                             @Value("${app.parsing.runs.regression-min-diff:1s}") Duration regressionMinDiff) {
+        this.retainedRuns = Math.max(1, retainedRuns);
+        this.maxSpans = Math.max(0, maxSpans);
+        this.baselineRuns = Math.max(1, baselineRuns);
+        this.regressionThreshold = regressionThreshold;
+        this.regressionMinDiffMs = regressionMinDiff.toMillis();
+    }
+
+    /**
+     * Новый прогон магазина; хронология начинает писаться, когда прогон привязан к потоку парсера
+     */
+    public synchronized ParsingRun create(Shop shop) {
+        ParsingRun run = new ParsingRun(UUID.randomUUID().toString(), shop, new ScrapeTimeline(maxSpans));
+        runs.addFirst(run);
+        byId.put(run.id, run);
+        while (runs.size() > retainedRuns) {
+            byId.remove(runs.removeLast().id);
+        }
+        return run;
+    }
+
+    /**
+     * Завершить прогон; повторное завершение (например, после таймаута) игнорируется
+     */
+    public void finish(ParsingRun run, ShopStatus status, int productsFound) {
+        if (run.finish(status, productsFound)) {
+            log.info("{} parsing run {} finished: {} in {} ms, phases {}", run.shop, run.id, status,
+                    run.durationMs(), run.timeline.getPhases());
+        }
+    }
+
+    /**
+     * Профиль прогона со сравнением с предыдущими прогонами магазина; withSpans=false - только итоги по фазам
+     */
+    public Optional<RunView> getRun(String id, boolean withSpans) {
+        ParsingRun run;
+        List<ParsingRun> previous = new ArrayList<>();
+        synchronized (this) {
+            run = byId.get(id);
+            if (run == null) {
+                return Optional.empty();
+            }
+            boolean older = false;
+            for (ParsingRun candidate : runs) {
+                if (candidate == run) {
+                    older = true;
+                } else if (older && candidate.shop == run.shop && candidate.status() == ShopStatus.SUCCESS
+                        && previous.size() < baselineRuns) {
+                    previous.add(candidate);
+                }
+            }
+        }
+        RunView view = run.view(withSpans);
+        view.setComparison(compare(view, previous.stream().map(candidate -> candidate.view(false)).toList()));
+        return Optional.of(view);
+    }
+
+    /**
+     * Прогоны, начиная с последних; shop=null - всех магазинов
+     */
+    public List<RunView> getRuns(Shop shop, int limit) {
+        List<ParsingRun> selected = new ArrayList<>();
+        synchronized (this) {
+            for (ParsingRun run : runs) {
+                if ((shop == null || run.shop == shop) && selected.size() < limit) {
+                    selected.add(run);
+                }
+            }
+        }
+        return selected.stream().map(run -> run.view(false)).toList();
+    }
+
+    private RunComparison compare(RunView current, List<RunView> baseline) {
+        if (baseline.isEmpty()) {
+            return null;
+        }
+        Set<String> phases = new LinkedHashSet<>();
+        current.getPhases().forEach(phase -> phases.add(phase.phase()));
+        baseline.forEach(run -> run.getPhases().forEach(phase -> phases.add(phase.phase())));
+
+        List<PhaseDelta> deltas = new ArrayList<>();
+        List<String> regressions = new ArrayList<>();
+        for (String phase : phases) {
+            PhaseSummary now = phase(current, phase);
+            long baselineTotal = median(baseline, run -> phase(run, phase).totalMs());
+            boolean regression = isRegression(now.totalMs(), baselineTotal);
+            if (regression) {
+                regressions.add(phase);
+            }
+            deltas.add(PhaseDelta.builder()
+                    .phase(phase)
+                    .totalMs(now.totalMs())
+                    .baselineTotalMs(baselineTotal)
+                    .changePercent(changePercent(now.totalMs(), baselineTotal))
+                    .count(now.count())
+                    .baselineCount(median(baseline, run -> phase(run, phase).count()))
+                    .items(now.items())
+                    .baselineItems(median(baseline, run -> phase(run, phase).items()))
+                    .regression(regression)
+                    .build());
+        }
+
+        long baselineDuration = median(baseline, RunView::getDurationMs);
+        long baselineProducts = median(baseline, RunView::getProductsFound);
+        return RunComparison.builder()
+                .baselineRunIds(baseline.stream().map(RunView::getId).toList())
+                .durationMs(current.getDurationMs())
+                .baselineDurationMs(baselineDuration)
+                .durationChangePercent(changePercent(current.getDurationMs(), baselineDuration))
+                .productsFound(current.getProductsFound())
+                .baselineProductsFound(baselineProducts)
+                .productsChangePercent(changePercent(current.getProductsFound(), baselineProducts))
+                .phases(deltas)
+                .regressions(regressions)
+                .build();
+    }
+
+    private boolean isRegression(long currentMs, long baselineMs) {
+        return currentMs - baselineMs >= regressionMinDiffMs && currentMs > baselineMs * (1 + regressionThreshold);
+    }
+
+    private static PhaseSummary phase(RunView run, String phase) {
+        return run.getPhases().stream()
+                .filter(summary -> summary.phase().equals(phase))
+                .findFirst()
+                .orElse(new PhaseSummary(phase, 0, 0, 0, 0));
+    }
+
+    private static long median(List<RunView> runs, ToLongFunction<RunView> value) {
+        long[] values = runs.stream().mapToLong(value).sorted().toArray();
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    // null, если базы нет (нулевая)
+    private static Double changePercent(long current, long baseline) {
+        return baseline == 0 ? null : Math.round((current - baseline) * 1000.0 / baseline) / 10.0;
+    }
+
+    /**
+     * Прогон парсинга одного магазина
+     */
+    public static final class ParsingRun {
+        private final String id;
+        private final Shop shop;
+        private final ScrapeTimeline timeline;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private ShopStatus status;
+        private LocalDateTime startedAt;
+        private long startNanos;
+        private long durationNanos;
+        private LocalDateTime finishedAt;
+        private int productsFound;
+
+        ParsingRun(String id, Shop shop, ScrapeTimeline timeline) {
+            this.id = id;
+            this.shop = shop;
+            this.timeline = timeline;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public ScrapeTimeline getTimeline() {
+            return timeline;
+        }
+
+        public synchronized void started() {
+            if (startedAt == null) {
+                startedAt = LocalDateTime.now();
+                startNanos = System.nanoTime();
+            }
+        }
+
+        synchronized ShopStatus status() {
+            return status;
+        }
+
+        // false - прогон уже был завершен
+        synchronized boolean finish(ShopStatus finalStatus, int found) {
+            if (status != null) {
+                return false;
+            }
+            status = finalStatus;
+            finishedAt = LocalDateTime.now();
+            durationNanos = startedAt == null ? 0 : System.nanoTime() - startNanos;
+            productsFound = found;
+            return true;
+        }
+
+        synchronized long durationMs() {
+            if (startedAt == null) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(status != null ? durationNanos : System.nanoTime() - startNanos);
+        }
+
+        synchronized RunView view(boolean withSpans) {
+            return RunView.builder()
+                    .id(id)
+                    .shop(shop)
+                    .status(status == null ? (startedAt == null ? "QUEUED" : "RUNNING") : status.name())
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .durationMs(durationMs())
+                    .productsFound(productsFound)
+                    .phases(timeline.getPhases())
+                    .spans(withSpans ? timeline.getSpans() : null)
+                    .droppedSpans(timeline.getDroppedSpans())
+                    .build();
+        }
+    }
+
+    /**
+     * Профиль прогона для API
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class RunView {
+        private String id;
+        private Shop shop;
+        private String status;               // QUEUED, RUNNING или итоговый статус магазина
+        private LocalDateTime createdAt;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private long durationMs;
+        private int productsFound;
+        private List<PhaseSummary> phases;
+        private List<Span> spans;            // Хронология отрезков, только в профиле одного прогона
+        private int droppedSpans;            // Отрезки сверх max-spans (учтены только в phases)
+        private RunComparison comparison;    // null - предыдущих успешных прогонов магазина нет
+    }
+
+    /**
+     * Сравнение прогона с медианой предыдущих успешных прогонов магазина
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class RunComparison {
+        private List<String> baselineRunIds;
+        private long durationMs;
+        private long baselineDurationMs;
+        private Double durationChangePercent;
+        private int productsFound;
+        private long baselineProductsFound;
+        private Double productsChangePercent;
+        private List<PhaseDelta> phases;
+        private List<String> regressions;    // Фазы, ставшие заметно дольше базы
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class PhaseDelta {
+        private String phase;
+        private long totalMs;
+        private long baselineTotalMs;
+        private Double changePercent;
+        private int count;
+        private long baselineCount;
+        private long items;
+        private long baselineItems;
+        private boolean regression;
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.repository.PriceHistoryRepository;
+import org.example.repository.PriceHistoryRepository.PriceChange;
+import org.example.repository.PriceHistoryRepository.PricePoint;
+import org.example.repository.PriceHistoryRepository.PriceStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryService {
+
+    private static final int DEFAULT_WINDOW_DAYS = 30;
+
+    private final PriceHistoryRepository priceHistoryRepository;
+
+    // Месяцы, для которых секция уже создана в этом процессе
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Гарантирует наличие секций за текущий и следующий месяц.
+     * Вызывается до транзакций записи, чтобы DDL не конкурировал с параллельной записью магазинов.
+     */
+    public void ensurePartitions(LocalDateTime at) {
+        YearMonth current = YearMonth.from(at);
+        ensurePartition(current);
+        ensurePartition(current.plusMonths(1));
+    }
+
+    private void ensurePartition(YearMonth month) {
+        if (knownPartitions.contains(month)) {
+            return;
+        }
+        synchronized (knownPartitions) {
+            if (knownPartitions.add(month)) {
+                try {
+                    priceHistoryRepository.createPartitionIfMissing(month);
+                    log.info("Price history partition for {} is ready", month);
+                } catch (RuntimeException e) {
+                    knownPartitions.remove(month);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Запись изменений цен пачкой
+     */
+    public void record(List<PriceChange> changes) {
+        priceHistoryRepository.insertAll(changes);
+    }
+
+    /**
+     * История цен товара за период (по умолчанию последние 30 дней)
+     */
+    public List<PricePoint> getHistory(long productId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(DEFAULT_WINDOW_DAYS);
+        return priceHistoryRepository.findByProductId(productId, start, end);
+    }
+
+    /**
+     * Минимум, максимум и среднее за период (по умолчанию последние 30 дней)
+     */
+    public PriceStats getStats(long productId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(DEFAULT_WINDOW_DAYS);
+        return priceHistoryRepository.getStats(productId, start, end);
+    }
+
+    /**
+     * Самая низкая цена за последние N дней; N меньше одного дня перенес бы начало окна в будущее
+     */
+    public Optional<PricePoint> getLowest(long productId, int days) {
+        if (days < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days must be at least 1: " + days);
+        }
+        return priceHistoryRepository.findLowest(productId, LocalDateTime.now().minusDays(days));
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.CacheConfig;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Точечный сброс кэша продуктов после сохранения новых цен
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (products != null) {
+            products.evict("all");
+            for (Shop shop : event.shops()) {
+                products.evict(shop.name());
+            }
+        }
+
+        Cache product = cacheManager.getCache(CacheConfig.PRODUCT);
+        if (product != null) {
+            for (Product changed : event.products()) {
+                product.evict(changed.getId());
+            }
+        }
+
+        clear(CacheConfig.PRODUCT_STATS);
+        clear(CacheConfig.PARSING_STATS);
+        log.debug("Evicted product caches for {} changed products", event.products().size());
+    }
+
+    private void clear(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
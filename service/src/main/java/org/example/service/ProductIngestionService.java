@@ -0,0 +1,215 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Product;
+import org.example.repository.PriceHistoryRepository.PriceChange;
+import org.example.repository.ProductBatchRepository;
+import org.example.repository.ProductBatchRepository.StoredState;
+import org.example.repository.ProductBatchRepository.UpsertResult;
+import org.example.util.ParsingMetrics;
+import org.example.util.ProductFingerprint;
+import org.example.util.ScrapeTimeline;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Пакетное сохранение спарсенных продуктов.
+ * Продукты пишутся чанками по batch-size строк, каждый чанк в своей транзакции.
+ * В режиме change-detection строки с неизменившимся отпечатком содержимого не отправляются в UPDATE вовсе.
+ * Изменения цен в той же транзакции пишутся в историю цен,
+ * после коммита пачки публикуется {@link ProductsChangedEvent} с вставленными и измененными продуктами.
+ * Парсеры могут отдавать товары потоком пачек ({@link IngestionStream}), тогда сохранение идет параллельно с парсингом.
+ */
+@Service
+@Slf4j
+public class ProductIngestionService {
+
+    // Ограничение протокола PostgreSQL на число параметров в одном запросе
+    private static final int MAX_BIND_PARAMS = 65535;
+
+    private final ProductBatchRepository batchRepository;
+    private final PriceHistoryService priceHistoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AsyncTaskExecutor ingestionExecutor;
+    private final ParsingMetrics metrics;
+    private final int batchSize;
+    private final boolean changeDetection;
+    private final int streamBuffer;
+
+    public ProductIngestionService(ProductBatchRepository batchRepository,
+                                   PriceHistoryService priceHistoryService,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Qualifier("ingestionExecutor") AsyncTaskExecutor ingestionExecutor,
+                                   ParsingMetrics metrics,
+                                   @Value("${app.ingestion.batch-size:500}") int batchSize,
+                                   @Value("${app.ingestion.change-detection:true}") boolean changeDetection,
+                                   @Value("${app.ingestion.stream.buffer-batches:4}") int streamBuffer) {
+        this.batchRepository = batchRepository;
+        this.priceHistoryService = priceHistoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.ingestionExecutor = ingestionExecutor;
+        this.metrics = metrics;
+        this.changeDetection = changeDetection;
+        this.streamBuffer = streamBuffer;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BIND_PARAMS / ProductBatchRepository.PARAMS_PER_ROW));
+    }
+
+    /**
+     * Поток для сохранения пачек по мере парсинга: потребитель из ingestionExecutor сохраняет пачки,
+     * пока парсер продолжает работу. Если свободного потребителя нет, пачки сохраняются в потоке парсера.
+     */
+    public IngestionStream openStream() {
+        // Пачки сохраняются в другом потоке, поэтому хронология прогона берется из потока парсера сейчас
+        ScrapeTimeline timeline = ScrapeTimeline.current();
+        IngestionStream stream = new IngestionStream(batch -> {
+            long start = System.nanoTime();
+            IngestionResult result = ingest(batch);
+            timeline.record(ScrapeTimeline.PERSIST, start, batch.size());
+            return result;
+        }, streamBuffer, timeline);
+        try {
+            stream.attachConsumer(ingestionExecutor.submit(stream::drain));
+        } catch (TaskRejectedException e) {
+            log.debug("No free ingestion consumer, batches are saved in the parser thread");
+        }
+        return stream;
+    }
+
+    /**
+     * Сохранение продуктов: вставка новых и обновление измененных по ref
+     */
+    public IngestionResult ingest(List<Product> products) {
+        long start = System.nanoTime();
+        // Повтор ref внутри одного INSERT ... ON CONFLICT недопустим, оставляем последнюю карточку
+        Map<String, Product> byRef = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Product product : products) {
+            if (product.getRef() == null || product.getTitle() == null || product.getShop() == null) {
+                skipped++;
+                continue;
+            }
+            product.convertPrices();
+            countUnparsedPrices(product);
+            product.setContentHash(ProductFingerprint.of(product));
+            byRef.put(product.getRef(), product);
+        }
+        List<Product> rows = new ArrayList<>(byRef.values());
+
+        int inserted = 0;
+        int updated = 0;
+        int unchanged = 0;
+        int failed = skipped;
+
+        LocalDateTime recordedAt = LocalDateTime.now();
+        priceHistoryService.ensurePartitions(recordedAt);
+
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Product> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            UpsertResult counts;
+            try {
+                counts = transactionTemplate.execute(status -> saveChunk(chunk, recordedAt));
+            } catch (Exception e) {
+                log.error("Error saving batch of {} products starting at {}", chunk.size(), from, e);
+                failed += chunk.size();
+                continue;
+            }
+            inserted += counts.inserted();
+            updated += counts.updated();
+            unchanged += counts.unchanged();
+            publishChanges(counts.written());
+        }
+
+        IngestionResult result = IngestionResult.builder()
+                .inserted(inserted)
+                .updated(updated)
+                .unchanged(unchanged)
+                .failed(failed)
+                .build();
+        metrics.ingestionBatch(System.nanoTime() - start, inserted, updated, unchanged, failed);
+        log.info("Products processed: {} new, {} updated, {} unchanged, {} failed", inserted, updated, unchanged, failed);
+        return result;
+    }
+
+    // Текст цены есть, но разобрать его не удалось: товар сохраняется без этой цены
+    private void countUnparsedPrices(Product product) {
+        boolean oldUnparsed = product.getOldPriceStr() != null && !product.getOldPriceStr().isEmpty()
+                && product.getOldPriceKopecks() == null;
+        boolean newUnparsed = product.getNewPriceStr() != null && !product.getNewPriceStr().isEmpty()
+                && product.getNewPriceKopecks() == null;
+        if (oldUnparsed || newUnparsed) {
+            metrics.cardErrors(product.getShop(), "unparsed_price", 1);
+        }
+    }
+
+    private UpsertResult saveChunk(List<Product> chunk, LocalDateTime recordedAt) {
+        Map<String, StoredState> stored = batchRepository.findStoredStates(chunk.stream().map(Product::getRef).toList());
+
+        List<Product> changed = chunk;
+        if (changeDetection) {
+            changed = new ArrayList<>(chunk.size());
+            for (Product product : chunk) {
+                StoredState state = stored.get(product.getRef());
+                if (state == null || !product.getContentHash().equals(state.contentHash())) {
+                    changed.add(product);
+                }
+            }
+        }
+
+        UpsertResult result = batchRepository.upsert(changed);
+
+        // В историю попадают только новые товары и реальные изменения цены
+        List<PriceChange> priceChanges = new ArrayList<>();
+        for (Product product : result.written()) {
+            StoredState state = stored.get(product.getRef());
+            boolean priceChanged = state == null
+                    || !Objects.equals(state.oldPriceKopecks(), product.getOldPriceKopecks())
+                    || !Objects.equals(state.newPriceKopecks(), product.getNewPriceKopecks());
+            if (priceChanged && product.getCurrentPriceKopecks() != null) {
+                priceChanges.add(new PriceChange(product.getId(), recordedAt, product.getOldPriceKopecks(), product.getNewPriceKopecks()));
+            }
+        }
+        priceHistoryService.record(priceChanges);
+
+        return new UpsertResult(result.written(), result.inserted(), result.updated(),
+                result.unchanged() + chunk.size() - changed.size());
+    }
+
+    private void publishChanges(List<Product> written) {
+        if (written.isEmpty()) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new ProductsChangedEvent(written));
+        } catch (Exception e) {
+            // Пачка уже закоммичена, ошибка подписчика не должна считать ее несохраненной
+            log.error("Error handling changes of {} products", written.size(), e);
+        }
+    }
+
+    /**
+     * Итог сохранения продуктов
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class IngestionResult {
+        private int inserted;
+        private int updated;
+        private int unchanged;
+        private int failed;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.service;
+
+import org.example.repository.ProductMatchRepository.Match;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Событие о пересчете сопоставлений товаров.
+ * productIds - товары, чьи прежние пары удалены, matches - новые пары для них;
+ * full - полный пересчет, когда заменены все сопоставления.
+ */
+public record ProductMatchesChangedEvent(boolean full, Collection<Long> productIds, List<Match> matches) {
+
+    public static ProductMatchesChangedEvent rebuilt(List<Match> matches) {
+        return new ProductMatchesChangedEvent(true, List.of(), matches);
+    }
+}
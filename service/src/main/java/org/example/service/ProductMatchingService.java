@@ -0,0 +1,278 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.ProductMatchRepository;
+import org.example.repository.ProductMatchRepository.Match;
+import org.example.repository.ProductRepository;
+import org.example.util.ProductTitleParser;
+import org.example.util.ProductTitleParser.ParsedTitle;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Сопоставление одинаковых товаров между магазинами.
+ * Товары раскладываются по блокам (бренд + объем), похожесть считается только внутри блока,
+ * поэтому пересчет после парсинга затрагивает лишь блоки измененных товаров.
+ * Пересчет идет в отдельном потоке matchingExecutor: поток сохранения только откладывает измененные товары,
+ * а события, пришедшие за время пересчета, объединяются в один следующий пересчет.
+ * Полный расчет выполняется при старте приложения.
+ * После записи сопоставлений публикуется {@link ProductMatchesChangedEvent}.
+ */
+@Service
+@Slf4j
+public class ProductMatchingService {
+
+    private final ProductRepository productRepository;
+    private final ProductMatchRepository matchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor matchingExecutor;
+    private final double minScore;
+
+    // Измененные товары, еще не учтенные пересчетом (под блокировкой pending)
+    private final Map<Long, Product> pending = new LinkedHashMap<>();
+    private boolean refreshScheduled;
+
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+    private final Map<String, Map<Long, Candidate>> blocks = new HashMap<>();
+    private boolean initialized;
+
+    public ProductMatchingService(ProductRepository productRepository,
+                                  ProductMatchRepository matchRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Qualifier("matchingExecutor") Executor matchingExecutor,
+                                  @Value("${app.matching.min-score:0.5}") double minScore) {
+        this.productRepository = productRepository;
+        this.matchRepository = matchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.matchingExecutor = matchingExecutor;
+        this.minScore = minScore;
+    }
+
+    /**
+     * Сопоставленные товары других магазинов для набора товаров (лучшие первыми)
+     */
+    public Map<Long, List<Match>> findMatches(Collection<Long> productIds) {
+        return matchRepository.findByProductIds(productIds);
+    }
+
+    /**
+     * Полный расчет при старте, до него события только накапливаются в очереди пересчета
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        matchingExecutor.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("Error rebuilding product matches", e);
+            }
+        });
+    }
+
+    /**
+     * Измененные товары откладываются до пересчета в matchingExecutor; если пересчет уже запланирован,
+     * товары попадут в него
+     */
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        synchronized (pending) {
+            event.products().forEach(product -> pending.put(product.getId(), product));
+            if (refreshScheduled) {
+                return;
+            }
+            refreshScheduled = true;
+        }
+        try {
+            matchingExecutor.execute(this::refreshPending);
+        } catch (RuntimeException e) {
+            synchronized (pending) {
+                refreshScheduled = false;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void refreshPending() {
+        List<Product> products;
+        synchronized (pending) {
+            products = new ArrayList<>(pending.values());
+            pending.clear();
+            refreshScheduled = false;
+        }
+        try {
+            if (initialized) {
+                refresh(products);
+            } else {
+                // Полный расчет при старте не удался: он читает БД, где изменения из событий уже закоммичены
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing matches of {} products", products.size(), e);
+        }
+    }
+
+    /**
+     * Инкрементальный пересчет блоков, затронутых измененными товарами
+     */
+    private void refresh(Collection<Product> products) {
+        long start = System.currentTimeMillis();
+        Set<String> dirtyBlocks = new HashSet<>();
+        Set<Long> affectedIds = new HashSet<>();
+
+        for (Product product : products) {
+            affectedIds.add(product.getId());
+            Candidate previous = candidates.remove(product.getId());
+            if (previous != null) {
+                removeFromBlock(previous);
+                dirtyBlocks.add(previous.blockKey());
+            }
+            Candidate candidate = index(product);
+            if (candidate != null) {
+                dirtyBlocks.add(candidate.blockKey());
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (String key : dirtyBlocks) {
+            Map<Long, Candidate> block = blocks.get(key);
+            if (block != null) {
+                affectedIds.addAll(block.keySet());
+                matches.addAll(matchBlock(block.values()));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> matchRepository.replaceMatches(affectedIds, matches));
+        eventPublisher.publishEvent(new ProductMatchesChangedEvent(false, affectedIds, matches));
+        log.debug("Product matches refreshed in {} ms: {} blocks, {} pairs",
+                System.currentTimeMillis() - start, dirtyBlocks.size(), matches.size());
+    }
+
+    /**
+     * Полный пересчет сопоставлений по всем товарам
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+        candidates.clear();
+        blocks.clear();
+        for (Product product : productRepository.findAll()) {
+            index(product);
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Map<Long, Candidate> block : blocks.values()) {
+            matches.addAll(matchBlock(block.values()));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            matchRepository.deleteAll();
+            matchRepository.replaceMatches(List.of(), matches);
+        });
+        initialized = true;
+        eventPublisher.publishEvent(ProductMatchesChangedEvent.rebuilt(matches));
+        log.info("Product matches rebuilt in {} ms: {} products, {} blocks, {} pairs",
+                System.currentTimeMillis() - start, candidates.size(), blocks.size(), matches.size());
+        return matches.size();
+    }
+
+    private Candidate index(Product product) {
+        ParsedTitle parsed = ProductTitleParser.parse(product.getTitle(), product.getVolume());
+        if (parsed.blockKey() == null) {
+            return null;
+        }
+        Candidate candidate = new Candidate(product.getId(), product.getShop(), parsed);
+        candidates.put(candidate.id(), candidate);
+        blocks.computeIfAbsent(candidate.blockKey(), key -> new HashMap<>()).put(candidate.id(), candidate);
+        return candidate;
+    }
+
+    private void removeFromBlock(Candidate candidate) {
+        Map<Long, Candidate> block = blocks.get(candidate.blockKey());
+        if (block != null) {
+            block.remove(candidate.id());
+            if (block.isEmpty()) {
+                blocks.remove(candidate.blockKey());
+            }
+        }
+    }
+
+    /**
+     * Жадное сопоставление один к одному внутри блока для каждой пары магазинов
+     */
+    private List<Match> matchBlock(Collection<Candidate> block) {
+        Map<Shop, List<Candidate>> byShop = new EnumMap<>(Shop.class);
+        for (Candidate candidate : block) {
+            byShop.computeIfAbsent(candidate.shop(), shop -> new ArrayList<>()).add(candidate);
+        }
+        if (byShop.size() < 2) {
+            return List.of();
+        }
+
+        List<Shop> shops = new ArrayList<>(byShop.keySet());
+        List<Match> result = new ArrayList<>();
+        for (int i = 0; i < shops.size(); i++) {
+            for (int j = i + 1; j < shops.size(); j++) {
+                result.addAll(matchShops(byShop.get(shops.get(i)), byShop.get(shops.get(j))));
+            }
+        }
+        return result;
+    }
+
+    private List<Match> matchShops(List<Candidate> left, List<Candidate> right) {
+        List<Match> scored = new ArrayList<>();
+        for (Candidate a : left) {
+            for (Candidate b : right) {
+                double score = score(a.parsed(), b.parsed());
+                if (score >= minScore) {
+                    scored.add(new Match(a.id(), b.id(), score));
+                }
+            }
+        }
+        scored.sort(Comparator.comparingDouble(Match::score).reversed());
+
+        Set<Long> used = new HashSet<>();
+        List<Match> result = new ArrayList<>();
+        for (Match match : scored) {
+            if (!used.contains(match.productId()) && !used.contains(match.matchedProductId())) {
+                used.add(match.productId());
+                used.add(match.matchedProductId());
+                result.add(match);
+            }
+        }
+        return result;
+    }
+
+    private static double score(ParsedTitle a, ParsedTitle b) {
+        double trigram = ProductTitleParser.trigramSimilarity(a.trigrams(), b.trigrams());
+        double tokens = ProductTitleParser.tokenSimilarity(a.tokens(), b.tokens());
+        return 0.6 * trigram + 0.4 * tokens;
+    }
+
+    private record Candidate(long id, Shop shop, ParsedTitle parsed) {
+
+        String blockKey() {
+            return parsed.blockKey();
+        }
+    }
+}
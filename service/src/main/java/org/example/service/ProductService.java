@@ -2,34 +2,42 @@ package org.example.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.configuration.CacheConfig;
 import org.example.entity.Product;
 import org.example.entity.Shop;
 import org.example.repository.ProductRepository;
+import org.example.repository.ProductSearchRepository;
+import org.example.repository.ProductSearchRepository.SearchCriteria;
+import org.example.util.Money;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    private static final Sort DEFAULT_SORT = Sort.by("title", "id");
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final ProductSearchRepository productSearchRepository;
+    private final ComparisonIndex comparisonIndex;
 
     /**
      * Получение всех продуктов с кэшированием
      */
-    @Cacheable(value = "products", key = "'all'")
+    @Cacheable(value = CacheConfig.PRODUCTS, key = "'all'")
     public List<Product> getAllProducts() {
         return productRepository.findAllByOrderByTitleAsc();
     }
@@ -37,38 +45,86 @@ public class ProductService {
     /**
      * Получение продуктов по магазину
      */
-    @Cacheable(value = "products", key = "#shop.name()")
+    @Cacheable(value = CacheConfig.PRODUCTS, key = "#shop.name()")
     public List<Product> getProductsByShop(Shop shop) {
         return productRepository.findByShopOrderByTitleAsc(shop);
     }
 
     /**
-     * Поиск продуктов по названию
+     * Поиск продуктов: полнотекстовый с учетом морфологии и опечаток, фильтры по магазину и цене.
+     * Результаты упорядочены по релевантности, без запроса - по названию.
      */
-    public List<Product> searchProducts(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return getAllProducts();
-        }
-        return productRepository.findByTitleContainingIgnoreCaseOrderByTitleAsc(query.trim());
+    public Page<Product> searchProducts(String query, Shop shop, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        String text = query == null ? null : query.trim();
+        SearchCriteria criteria = new SearchCriteria(text, shop,
+                minPrice == null ? null : Money.toKopecks(minPrice),
+                maxPrice == null ? null : Money.toKopecks(maxPrice));
+        int size = Math.max(1, Math.min(pageable.getPageSize(), MAX_PAGE_SIZE));
+
+        List<Product> content = productSearchRepository.search(criteria, size, (long) pageable.getPageNumber() * size);
+        long total = content.size() < size && pageable.getPageNumber() == 0
+                ? content.size()
+                : productSearchRepository.count(criteria);
+
+        return new PageImpl<>(content, PageRequest.of(pageable.getPageNumber(), size), total);
     }
 
     /**
-     * Получение продуктов с пагинацией
+     * Получение продуктов с пагинацией на стороне БД.
+     * Без явной сортировки страницы упорядочены по (title, id).
      */
     public Page<Product> getProductsWithPagination(Pageable pageable) {
-        List<Product> allProducts = getAllProducts();
-        Sort sort = pageable.getSort();
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), allProducts.size());
+        Pageable sorted = pageable.getSort().isSorted()
+                ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), DEFAULT_SORT);
+        return productRepository.findAll(sorted);
+    }
+
+    /**
+     * Keyset-пагинация: страница продуктов строго после курсора "title,id" (пустой курсор - первая страница).
+     * Стоимость не зависит от глубины страницы.
+     */
+    public CursorPage getProductsAfter(String after, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Product> rows;
+
+        if (after == null || after.isBlank()) {
+            rows = productRepository.findFirstByTitleKeyset(limit + 1);
+        } else {
+            int separator = after.lastIndexOf(',');
+            if (separator < 0) {
+                throw badCursor(after);
+            }
+            long id;
+            try {
+                id = Long.parseLong(after.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                throw badCursor(after);
+            }
+            rows = productRepository.findAfterByTitleKeyset(after.substring(0, separator), id, limit + 1);
+        }
+
+        boolean hasNext = rows.size() > limit;
+        List<Product> items = hasNext ? rows.subList(0, limit) : rows;
+        Product last = items.isEmpty() ? null : items.get(items.size() - 1);
 
-        List<Product> pageContent = allProducts.subList(start, end);
+        return CursorPage.builder()
+                .items(items)
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? last.getTitle() + "," + last.getId() : null)
+                .build();
+    }
 
-        return new PageImpl<>(pageContent, pageable, allProducts.size());
+    // Некорректный курсор - ошибка клиента, а не сервера
+    private static ResponseStatusException badCursor(String after) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor must look like <title>,<id>: " + after);
     }
 
     /**
      * Получение продукта по ID
      */
+    @Cacheable(value = CacheConfig.PRODUCT, key = "#id")
     public Product getProductById(Long id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found: " + id));
@@ -76,85 +132,23 @@ public class ProductService {
 
     /**
      * Получение продуктов для сравнения цен
-     * Группирует похожие товары из разных магазинов
+     * Группирует похожие товары из разных магазинов (готовые пары из предрасчитанного индекса)
      */
     public List<ProductComparison> getProductsForComparison() {
-        List<Product> allProducts = productRepository.findProductsWithPrices();
-
-        // Группируем по похожим названиям
-        Map<String, List<Product>> groupedProducts = allProducts.stream()
-                .collect(Collectors.groupingBy(this::normalizeProductName));
-
-        return groupedProducts.entrySet().stream()
-                .filter(entry -> entry.getValue().size() > 1) // Только товары из нескольких магазинов
-                .map(entry -> createProductComparison(entry.getKey(), entry.getValue()))
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(ProductComparison::getProductName))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Нормализация названия продукта для группировки
-     */
-    private String normalizeProductName(Product product) {
-        return product.getTitle()
-                .toLowerCase()
-                .replaceAll("[^a-zа-я0-9\s]", "")
-                .replaceAll("\s+", " ")
-                .trim();
+        return comparisonIndex.getAll();
     }
 
     /**
-     * Создание объекта сравнения продуктов
+     * Страница пар для сравнения цен (номер и размер страницы ограничиваются так же, как в поиске)
      */
-    private ProductComparison createProductComparison(String normalizedName, List<Product> products) {
-        Product lavkaProduct = products.stream()
-                .filter(p -> p.getShop() == Shop.LAVKA)
-                .findFirst()
-                .orElse(null);
-
-        Product samokatProduct = products.stream()
-                .filter(p -> p.getShop() == Shop.SAMOKAT)
-                .findFirst()
-                .orElse(null);
-
-        if (lavkaProduct == null || samokatProduct == null) {
-            return null;
-        }
-
-        BigDecimal lavkaPrice = lavkaProduct.getCurrentPrice();
-        BigDecimal samokatPrice = samokatProduct.getCurrentPrice();
-
-        if (lavkaPrice == null || samokatPrice == null) {
-            return null;
-        }
-
-        // Определяем более дешевый вариант
-        String cheaperShop;
-        BigDecimal priceDifference;
-
-        if (lavkaPrice.compareTo(samokatPrice) <= 0) {
-            cheaperShop = "LAVKA";
-            priceDifference = samokatPrice.subtract(lavkaPrice);
-        } else {
-            cheaperShop = "SAMOKAT";
-            priceDifference = lavkaPrice.subtract(samokatPrice);
-        }
-
-        return ProductComparison.builder()
-                .productName(lavkaProduct.getTitle())
-                .lavkaProduct(lavkaProduct)
-                .samokatProduct(samokatProduct)
-                .lavkaPrice(lavkaPrice)
-                .samokatPrice(samokatPrice)
-                .cheaperShop(cheaperShop)
-                .priceDifference(priceDifference)
-                .build();
+    public List<ProductComparison> getProductsForComparison(int page, int size) {
+        return comparisonIndex.getPage(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
     }
 
     /**
      * Получение статистики продуктов
      */
+    @Cacheable(value = CacheConfig.PRODUCT_STATS, key = "'all'")
     public ProductStats getProductStats() {
         long totalProducts = productRepository.count();
         long uniqueProducts = productRepository.countUniqueProducts();
@@ -184,6 +178,18 @@ public class ProductService {
         private BigDecimal priceDifference;
     }
 
+    /**
+     * Страница keyset-пагинации
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class CursorPage {
+        private List<Product> items;
+        private int size;
+        private boolean hasNext;
+        private String nextCursor;
+    }
+
     /**
      * Статистика продуктов
      */
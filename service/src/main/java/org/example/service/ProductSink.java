@@ -0,0 +1,14 @@
+package org.example.service;
+
+import org.example.entity.Product;
+
+import java.util.List;
+
+/**
+ * Приемник пачек товаров от парсера. Может блокировать парсер, пока потребитель не освободит буфер.
+ */
+@FunctionalInterface
+public interface ProductSink {
+
+    void accept(List<Product> batch) throws InterruptedException;
+}
@@ -0,0 +1,20 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Событие о вставленных или измененных продуктах после коммита очередной пачки при сохранении.
+ */
+public record ProductsChangedEvent(List<Product> products) {
+
+    public Set<Shop> shops() {
+        Set<Shop> shops = EnumSet.noneOf(Shop.class);
+        products.forEach(product -> shops.add(product.getShop()));
+        return shops;
+    }
+}
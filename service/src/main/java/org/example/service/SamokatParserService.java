@@ -1,92 +1,108 @@
 package org.example.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.entity.Product;
 import org.example.entity.Shop;
-import org.example.util.DriverUtils;
-import org.openqa.selenium.By;
+import org.example.util.DomExtraction;
+import org.example.util.PageReadiness;
+import org.example.util.ParsingMetrics;
+import org.example.util.ProductAccumulator;
+import org.example.util.WebDriverPool;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class SamokatParserService implements Parserable {
 
     private static final String URL = "https://samokat.ru/category/voda";
 
+    private static final String PRODUCT_LIST_SELECTOR = "[class=\"ProductsList_productList__jjQpU\"]";
+
+    // Сколько шагов прокрутки у конца страницы без новых карточек считаем окончанием списка
+    private static final int STABLE_SCROLL_STEPS = 2;
+
+    // Поля карточек: название, объем, старая цена и первый span с "₽" в блоке контента (как в прежнем XPath)
+    private static final String EXTRACT_CARDS_SCRIPT = """
+            const text = el => el ? el.innerText.trim() : null;
+            const hasRubleText = span => Array.from(span.childNodes)
+                .some(node => node.nodeType === Node.TEXT_NODE && node.textContent.includes('₽'));
+            const cards = [];
+            document.querySelectorAll(arguments[0]).forEach(list => list.querySelectorAll('a').forEach(a => {
+                const content = a.querySelector('[class="ProductCard_content__EjT48"]');
+                const priceSpan = content ? Array.from(content.querySelectorAll('span')).find(hasRubleText) : null;
+                cards.push({
+                    ref: a.href,
+                    title: text(a.querySelector('[class="ProductCard_name__2VDcL"] [class="Text_text__7SbT7 Text_text--type_p3SemiBold__nZftu"]')),
+                    volume: text(a.querySelector('[class="ProductCard_specification__Y0xA6"] [class="Text_text__7SbT7 Text_text--type_p3SemiBold__nZftu"]')),
+                    oldPrice: text(a.querySelector('[class="ProductCardActions_oldPrice__d7vDY"]')),
+                    price: text(priceSpan)
+                });
+            }));
+            return cards;
+            """;
+
+    private final WebDriverPool driverPool;
+    private final PageReadiness readiness;
+    private final ParsingMetrics metrics;
+
     @Override
-    public List<Product> getProducts() throws InterruptedException {
-        WebDriver driver = DriverUtils.getDriver();
+    public Shop getShop() {
+        return Shop.SAMOKAT;
+    }
+
+    @Override
+    public String getDefaultCategoryUrl() {
+        return URL;
+    }
+
+    @Override
+    public List<Product> getProducts(String categoryUrl) throws InterruptedException {
+        WebDriver driver = driverPool.borrow();
         try {
-            log.info("Starting Samokat parsing from URL: {}", URL);
-            driver.get(URL);
-            Thread.sleep(3000);
-
-            List<Product> products = new ArrayList<>();
-            List<WebElement> productLists = driver.findElements(By.cssSelector("[class=\"ProductsList_productList__jjQpU\"]"));
-
-            for (WebElement productList : productLists) {
-                List<WebElement> elementsInList = productList.findElements(By.tagName("a"));
-
-                for (WebElement element : elementsInList) {
-                    try {
-                        String href = element.getDomProperty("href");
-
-                        // Проверяем, что товар еще не добавлен
-                        if (products.stream().noneMatch(p -> p.getRef().equals(href))) {
-
-                            String title = element
-                                    .findElement(By.cssSelector("[class=\"ProductCard_name__2VDcL\"]"))
-                                    .findElement(By.cssSelector("[class=\"Text_text__7SbT7 Text_text--type_p3SemiBold__nZftu\"]"))
-                                    .getText();
-
-                            String volume = element
-                                    .findElement(By.cssSelector("[class=\"ProductCard_specification__Y0xA6\"]"))
-                                    .findElement(By.cssSelector("[class=\"Text_text__7SbT7 Text_text--type_p3SemiBold__nZftu\"]"))
-                                    .getText();
-
-                            // Старая цена (если есть скидка)
-                            String oldPrice = null;
-                            List<WebElement> oldPriceElements = element.findElements(By.cssSelector("[class=\"ProductCardActions_oldPrice__d7vDY\"]"));
-                            if (!oldPriceElements.isEmpty()) {
-                                oldPrice = oldPriceElements.get(0).getText();
-                            }
-
-                            // Текущая цена
-                            String price = null;
-                            List<WebElement> priceElements = element
-                                    .findElement(By.cssSelector("[class=\"ProductCard_content__EjT48\"]"))
-                                    .findElements(By.xpath(".//span[contains(text(),'₽')]"));
-                            if (!priceElements.isEmpty()) {
-                                price = priceElements.get(0).getText();
-                            }
-
-                            Product product = Product.builder()
-                                    .title(title)
-                                    .oldPriceStr(oldPrice)  // Старая цена (может быть null)
-                                    .newPriceStr(price)     // Текущая цена
-                                    .volume(volume)
-                                    .ref(href)
-                                    .shop(Shop.SAMOKAT)
-                                    .build();
-
-                            products.add(product);
-                        }
-                    } catch (Exception e) {
-                        log.debug("Error parsing Samokat product: {}", e.getMessage());
-                    }
+            log.info("Starting Samokat parsing from URL: {}", categoryUrl);
+            ProductAccumulator products = new ProductAccumulator();
+            if (!readiness.open(driver, categoryUrl, PRODUCT_LIST_SELECTOR)) {
+                log.info("No product list on Samokat page {}", categoryUrl);
+                return products.getProducts();
+            }
+            // Догружаем ленивые карточки, пока их число растет
+            readiness.scrollUntilStable(driver, PRODUCT_LIST_SELECTOR + " a", STABLE_SCROLL_STEPS, null);
+
+            // Все карточки страницы одним вызовом executeScript
+            int incomplete = 0;
+            for (Map<String, Object> card : DomExtraction.extractAll(driver, EXTRACT_CARDS_SCRIPT, PRODUCT_LIST_SELECTOR)) {
+                String href = DomExtraction.text(card, "ref");
+                String title = DomExtraction.text(card, "title");
+                String volume = DomExtraction.text(card, "volume");
+
+                // Неполные карточки пропускаем; повторная ссылка на тот же товар сливается с найденной
+                if (href == null || title == null || volume == null) {
+                    incomplete++;
+                    continue;
                 }
+
+                products.merge(Product.builder()
+                        .title(title)
+                        .oldPriceStr(DomExtraction.text(card, "oldPrice"))  // Старая цена (может быть null)
+                        .newPriceStr(DomExtraction.text(card, "price"))     // Текущая цена
+                        .volume(volume)
+                        .ref(href)
+                        .shop(Shop.SAMOKAT)
+                        .build());
             }
 
-            log.info("Samokat parsing completed. Found {} products", products.size());
-            return products;
+            metrics.cardErrors(Shop.SAMOKAT, "incomplete", incomplete);
+            log.info("Samokat parsing completed. Found {} products, {} incomplete cards skipped", products.size(), incomplete);
+            return products.getProducts();
 
         } finally {
-            driver.quit();
+            driverPool.release(driver);
         }
     }
 }
@@ -0,0 +1,50 @@
+package org.example.util;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетное извлечение данных со страницы: скрипт собирает поля всех карточек в массив объектов
+ * за один вызов executeScript вместо отдельных findElement/getText на каждое поле.
+ */
+public final class DomExtraction {
+
+    private DomExtraction() {
+    }
+
+    /**
+     * Выполнить скрипт, возвращающий массив объектов, и получить его как список отображений
+     */
+    public static List<Map<String, Object>> extractAll(WebDriver driver, String script, Object... args) {
+        long start = System.nanoTime();
+        Object result = ((JavascriptExecutor) driver).executeScript(script, args);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (result instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> row = (Map<String, Object>) map;
+                    rows.add(row);
+                }
+            }
+        }
+        ScrapeTimeline.current().record(ScrapeTimeline.EXTRACTION, start, rows.size());
+        return rows;
+    }
+
+    /**
+     * Строковое поле строки; пустые строки считаются отсутствующими
+     */
+    public static String text(Map<String, Object> row, String key) {
+        Object value = row.get(key);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
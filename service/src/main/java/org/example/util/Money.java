@@ -0,0 +1,25 @@
+package org.example.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Деньги в приложении хранятся и считаются в копейках (long); рубли (BigDecimal) - только на границе API и конфигурации.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long toKopecks(BigDecimal rubles) {
+        return rubles == null ? 0 : rubles.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toRubles(long kopecks) {
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+
+    public static BigDecimal toRublesOrNull(Long kopecks) {
+        return kopecks == null ? null : BigDecimal.valueOf(kopecks, 2);
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Ожидание готовности страницы по событиям вместо фиксированных пауз:
+ * появление селектора, тишина в сети и DOM (счетчик запросов fetch/XHR и MutationObserver в странице),
+ * прокрутка, пока растет число карточек.
+ */
+@Component
+@Slf4j
+public class PageReadiness {
+
+    // Ставится один раз на документ: считает незавершенные fetch/XHR и запоминает время последней мутации DOM
+    private static final String INSTALL_MONITOR_SCRIPT = """
+            if (!window.__readiness) {
+                const state = { pending: 0, lastChange: Date.now() };
+                window.__readiness = state;
+                new MutationObserver(() => { state.lastChange = Date.now(); })
+                    .observe(document, { childList: true, subtree: true, characterData: true });
+                const done = () => { state.pending = Math.max(0, state.pending - 1); state.lastChange = Date.now(); };
+                if (window.fetch) {
+                    const originalFetch = window.fetch;
+                    window.fetch = function () {
+                        state.pending++;
+                        return originalFetch.apply(this, arguments).finally(done);
+                    };
+                }
+                const originalSend = XMLHttpRequest.prototype.send;
+                XMLHttpRequest.prototype.send = function () {
+                    state.pending++;
+                    this.addEventListener('loadend', done, { once: true });
+                    return originalSend.apply(this, arguments);
+                };
+            }
+            """;
+
+    private static final String QUIET_STATE_SCRIPT = """
+            const state = window.__readiness;
+            return state ? [state.pending, Date.now() - state.lastChange, document.readyState] : [0, 0, document.readyState];
+            """;
+
+    private static final String COUNT_SCRIPT = "return document.querySelectorAll(arguments[0]).length;";
+    private static final String SCROLL_SCRIPT = "window.scrollBy(0, Math.max(window.innerHeight * 0.9, 600));";
+    private static final String AT_BOTTOM_SCRIPT =
+            "return window.innerHeight + window.scrollY >= document.documentElement.scrollHeight - 2;";
+
+    private final Duration timeout;
+    private final Duration quietPeriod;
+    private final Duration scrollQuietPeriod;
+    private final Duration scrollStepTimeout;
+    private final Duration pollInterval;
+    private final ParsingMetrics metrics;
+
+    public PageReadiness(@Value("${app.selenium.readiness.timeout:20s}") Duration timeout,
+                         @Value("${app.selenium.readiness.quiet-period:500ms}") Duration quietPeriod,
+                         @Value("${app.selenium.readiness.scroll-quiet-period:250ms}") Duration scrollQuietPeriod,
+                         @Value("${app.selenium.readiness.scroll-step-timeout:3s}") Duration scrollStepTimeout,
+                         @Value("${app.selenium.readiness.poll-interval:50ms}") Duration pollInterval,
+                         ParsingMetrics metrics) {
+        this.timeout = timeout;
+        this.quietPeriod = quietPeriod;
+        this.scrollQuietPeriod = scrollQuietPeriod;
+        this.scrollStepTimeout = scrollStepTimeout;
+        this.pollInterval = pollInterval;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Открыть страницу и дождаться селектора (если задан) и затишья сети/DOM.
+     * Возвращает false, если селектор так и не появился.
+     */
+    public boolean open(WebDriver driver, String url, String readySelector) throws InterruptedException {
+        long start = System.nanoTime();
+        driver.get(url);
+        installMonitor(driver);
+        boolean found = readySelector == null || awaitSelector(driver, readySelector, timeout);
+        awaitQuiet(driver, quietPeriod, timeout);
+        ScrapeTimeline.current().record(ScrapeTimeline.NAVIGATION, start, found ? 1 : 0, url);
+        return found;
+    }
+
+    /**
+     * Явное ожидание элемента по CSS-селектору
+     */
+    public boolean awaitSelector(WebDriver driver, String cssSelector, Duration maxWait) {
+        try {
+            new WebDriverWait(driver, maxWait, pollInterval)
+                    .until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(cssSelector)));
+            return true;
+        } catch (TimeoutException e) {
+            metrics.pageTimeout("selector");
+            log.debug("Selector {} did not appear within {}", cssSelector, maxWait);
+            return false;
+        }
+    }
+
+    /**
+     * Ожидание, пока документ загружен, нет незавершенных запросов и DOM не менялся quiet мс.
+     * По истечении maxWait страница считается готовой как есть.
+     */
+    public boolean awaitQuiet(WebDriver driver, Duration quiet, Duration maxWait) throws InterruptedException {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            List<?> state = (List<?>) js.executeScript(QUIET_STATE_SCRIPT);
+            long pending = ((Number) state.get(0)).longValue();
+            long sinceChange = ((Number) state.get(1)).longValue();
+            if ("complete".equals(state.get(2)) && pending == 0 && sinceChange >= quiet.toMillis()) {
+                return true;
+            }
+            if (System.nanoTime() >= deadline) {
+                metrics.pageTimeout("settle");
+                log.debug("Page did not settle within {} ({} pending requests)", maxWait, pending);
+                return false;
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+    }
+
+    /**
+     * Прокрутка вниз, пока растет число элементов по селектору.
+     * После каждого шага ждем затишья, а не фиксированную паузу; stableSteps шагов без роста у конца страницы - стоп.
+     * onStep вызывается после каждого шага (например, чтобы собрать карточки виртуализированного списка).
+     */
+    public int scrollUntilStable(WebDriver driver, String itemSelector, int stableSteps, ScrollStep onStep)
+            throws InterruptedException {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        long deadline = System.nanoTime() + timeout.toNanos() * 3;
+        int count = count(js, itemSelector);
+        int stable = 0;
+        while (stable < stableSteps && System.nanoTime() < deadline) {
+            if (onStep != null) {
+                onStep.run();
+            }
+            long stepStart = System.nanoTime();
+            js.executeScript(SCROLL_SCRIPT);
+            awaitQuiet(driver, scrollQuietPeriod, scrollStepTimeout);
+
+            int current = count(js, itemSelector);
+            ScrapeTimeline.current().record(ScrapeTimeline.SCROLL, stepStart, current);
+            if (current > count) {
+                count = current;
+                stable = 0;
+            } else if (Boolean.TRUE.equals(js.executeScript(AT_BOTTOM_SCRIPT))) {
+                stable++;
+            }
+        }
+        if (onStep != null) {
+            onStep.run();
+        }
+        return count;
+    }
+
+    private void installMonitor(WebDriver driver) {
+        ((JavascriptExecutor) driver).executeScript(INSTALL_MONITOR_SCRIPT);
+    }
+
+    private static int count(JavascriptExecutor js, String selector) {
+        Object result = js.executeScript(COUNT_SCRIPT, selector);
+        return result instanceof Number number ? number.intValue() : 0;
+    }
+
+    /**
+     * Действие после шага прокрутки; может блокироваться (например, на буфере сохранения)
+     */
+    @FunctionalInterface
+    public interface ScrollStep {
+        void run() throws InterruptedException;
+    }
+}
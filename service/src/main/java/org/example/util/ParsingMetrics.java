@@ -0,0 +1,94 @@
+package org.example.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.entity.Shop;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики парсинга и сохранения (Micrometer, /actuator/prometheus):
+ * parsing.shop.duration{shop,status} - время парсинга магазина,
+ * parsing.cards{shop} и parsing.shop.cards.rate{shop} - карточки и карточек в секунду за последний прогон,
+ * parsing.card.errors{shop,reason} - пропущенные карточки (неполные, с неразобранной ценой),
+ * parsing.page.timeouts{wait} - страницы, не дождавшиеся селектора или тишины,
+ * parsing.fallbacks{shop,reason} - переходы с HTTP backend'а на браузер,
+ * ingestion.batch.duration и ingestion.rows{result} - время сохранения пачки и итог по строкам.
+ */
+@Component
+public class ParsingMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer ingestionBatch;
+    private final Map<String, Counter> ingestionRows = new HashMap<>();
+    // Карточек в секунду за последний прогон магазина
+    private final Map<Shop, LastRun> lastRuns = new EnumMap<>(Shop.class);
+
+    public ParsingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.ingestionBatch = Timer.builder("ingestion.batch.duration")
+                .description("Time to save one batch of parsed products")
+                .publishPercentileHistogram()
+                .register(registry);
+        for (String result : new String[]{"inserted", "updated", "unchanged", "failed"}) {
+            ingestionRows.put(result, Counter.builder("ingestion.rows")
+                    .description("Product rows processed by ingestion")
+                    .tag("result", result)
+                    .register(registry));
+        }
+        for (Shop shop : Shop.values()) {
+            LastRun lastRun = new LastRun();
+            lastRuns.put(shop, lastRun);
+            Gauge.builder("parsing.shop.cards.rate", lastRun, run -> run.cardsPerSecond)
+                    .description("Cards per second in the last parsing run of the shop")
+                    .tag("shop", shop.name())
+                    .register(registry);
+        }
+    }
+
+    public void shopParsed(Shop shop, String status, long durationNanos, int cards) {
+        Timer.builder("parsing.shop.duration")
+                .description("Time to parse and save one shop")
+                .tag("shop", shop.name())
+                .tag("status", status)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        registry.counter("parsing.cards", "shop", shop.name()).increment(cards);
+        if (durationNanos > 0) {
+            lastRuns.get(shop).cardsPerSecond = cards / (durationNanos / 1e9);
+        }
+    }
+
+    public void cardErrors(Shop shop, String reason, int count) {
+        if (count > 0) {
+            registry.counter("parsing.card.errors", "shop", shop == null ? "unknown" : shop.name(), "reason", reason)
+                    .increment(count);
+        }
+    }
+
+    public void pageTimeout(String wait) {
+        registry.counter("parsing.page.timeouts", "wait", wait).increment();
+    }
+
+    public void fallback(Shop shop, String reason) {
+        registry.counter("parsing.fallbacks", "shop", shop.name(), "reason", reason).increment();
+    }
+
+    public void ingestionBatch(long durationNanos, int inserted, int updated, int unchanged, int failed) {
+        ingestionBatch.record(durationNanos, TimeUnit.NANOSECONDS);
+        ingestionRows.get("inserted").increment(inserted);
+        ingestionRows.get("updated").increment(updated);
+        ingestionRows.get("unchanged").increment(unchanged);
+        ingestionRows.get("failed").increment(failed);
+    }
+
+    private static final class LastRun {
+        private volatile double cardsPerSecond;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.util;
+
+/**
+ * Разбор цены из текста карточки в копейки за один проход по символам, без регулярных выражений и промежуточных строк.
+ * Понимает разделители разрядов (пробел, неразрывный и узкий пробел, точка или запятая перед тремя цифрами),
+ * десятичную часть через точку или запятую, любые приписки ("от", "₽", "руб.").
+ * Из диапазона ("89–129 ₽") берется первая, то есть минимальная, цена.
+ * Ровно три цифры после точки или запятой считаются разрядами, а не копейками: "89,900" - это 89 900 ₽.
+ */
+public final class PriceParser {
+
+    // Цены нет: в тексте нет цифр или число не помещается в long копеек
+    public static final long NO_PRICE = -1;
+
+    // 10^15 рублей * 100 еще помещается в long
+    private static final int MAX_RUBLE_DIGITS = 15;
+
+    private PriceParser() {
+    }
+
+    /**
+     * Цена в копейках или {@link #NO_PRICE}
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return NO_PRICE;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length && !isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return NO_PRICE;
+        }
+
+        long rubles = 0;
+        int digits = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                if (++digits > MAX_RUBLE_DIGITS) {
+                    return NO_PRICE;
+                }
+                rubles = rubles * 10 + (c - '0');
+                i++;
+            } else if (isGroupSeparator(c) && digitRun(text, i + 1) == 3) {
+                // Разделитель разрядов: "1 299", "1.299"
+                i++;
+            } else if ((c == '.' || c == ',') && digitRun(text, i + 1) > 0) {
+                // Десятичная часть: "89,9", "89.90"; дальше второго знака копейки отбрасываются
+                int kopecks = (text.charAt(i + 1) - '0') * 10;
+                if (digitRun(text, i + 1) > 1) {
+                    kopecks += text.charAt(i + 2) - '0';
+                }
+                return rubles * 100 + kopecks;
+            } else {
+                break;
+            }
+        }
+        return rubles * 100;
+    }
+
+    /**
+     * Цена в копейках или null, если ее нет
+     */
+    public static Long parseKopecks(CharSequence text) {
+        long kopecks = parse(text);
+        return kopecks == NO_PRICE ? null : kopecks;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isGroupSeparator(char c) {
+        return c == ' ' || c == '\u00A0' || c == '\u2009' || c == '\u202F' || c == '.' || c == ',' || c == '\'';
+    }
+
+    // Длина серии цифр, начиная с from
+    private static int digitRun(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i - from;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.util;
+
+import org.example.entity.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Товары страницы в порядке появления с индексом по ref: проверка и слияние повторной карточки за O(1).
+ * Повторная карточка дополняет найденный товар своими непустыми полями (например, догруженным объемом).
+ * Найденный товар не меняется на месте - он заменяется копией, потому что мог уже уйти в сохранение.
+ */
+public final class ProductAccumulator {
+
+    private final Map<String, Product> byRef = new LinkedHashMap<>();
+    // Новые и измененные товары с прошлого drainChanged()
+    private final Map<String, Product> changed = new LinkedHashMap<>();
+
+    /**
+     * Добавить карточку или слить ее с уже найденным товаром.
+     * true - товар новый или изменился
+     */
+    public boolean merge(Product card) {
+        String ref = card.getRef();
+        if (ref == null) {
+            return false;
+        }
+        Product existing = byRef.get(ref);
+        Product merged = existing == null ? copy(card, card) : copy(existing, card);
+        if (existing != null && sameContent(existing, merged)) {
+            return false;
+        }
+        byRef.put(ref, merged);
+        changed.put(ref, merged);
+        return true;
+    }
+
+    public void mergeAll(List<Product> cards) {
+        cards.forEach(this::merge);
+    }
+
+    public boolean contains(String ref) {
+        return byRef.containsKey(ref);
+    }
+
+    public int size() {
+        return byRef.size();
+    }
+
+    public List<Product> getProducts() {
+        return new ArrayList<>(byRef.values());
+    }
+
+    /**
+     * Товары, которые появились или изменились с прошлого вызова, в порядке первого появления
+     */
+    public List<Product> drainChanged() {
+        List<Product> batch = new ArrayList<>(changed.values());
+        changed.clear();
+        return batch;
+    }
+
+    private static Product copy(Product base, Product card) {
+        return Product.builder()
+                .title(pick(card.getTitle(), base.getTitle()))
+                .oldPriceStr(pick(card.getOldPriceStr(), base.getOldPriceStr()))
+                .newPriceStr(pick(card.getNewPriceStr(), base.getNewPriceStr()))
+                .volume(pick(card.getVolume(), base.getVolume()))
+                .ref(base.getRef())
+                .shop(card.getShop() != null ? card.getShop() : base.getShop())
+                .build();
+    }
+
+    private static String pick(String value, String fallback) {
+        return value != null && !value.isBlank() ? value : fallback;
+    }
+
+    private static boolean sameContent(Product a, Product b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getOldPriceStr(), b.getOldPriceStr())
+                && Objects.equals(a.getNewPriceStr(), b.getNewPriceStr())
+                && Objects.equals(a.getVolume(), b.getVolume())
+                && a.getShop() == b.getShop();
+    }
+}
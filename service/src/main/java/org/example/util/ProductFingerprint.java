@@ -0,0 +1,53 @@
+package org.example.util;
+
+import org.example.entity.Product;
+
+/**
+ * Отпечаток содержимого продукта (название, цены в копейках, объем).
+ * Используется, чтобы не перезаписывать строки, которые не изменились с прошлого парсинга.
+ */
+public final class ProductFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ProductFingerprint() {
+    }
+
+    /**
+     * 64-битный FNV-1a хэш по полям, которые видит пользователь
+     */
+    public static long of(Product product) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, product.getTitle());
+        hash = mix(hash, product.getOldPriceKopecks());
+        hash = mix(hash, product.getNewPriceKopecks());
+        hash = mix(hash, product.getVolume());
+        return hash;
+    }
+
+    private static long mix(long hash, Long value) {
+        if (value != null) {
+            long v = value;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash ^ (v & 0xff)) * FNV_PRIME;
+                v >>>= 8;
+            }
+        }
+        hash = (hash ^ (value == null ? 0x1f : 0x1e)) * FNV_PRIME;
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+        }
+        // Разделитель полей, чтобы ("ab", "c") и ("a", "bc") давали разные хэши; null отличается от ""
+        hash = (hash ^ (value == null ? 0x1f : 0x1e)) * FNV_PRIME;
+        return hash;
+    }
+}
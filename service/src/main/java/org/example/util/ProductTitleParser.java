@@ -0,0 +1,180 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор названия товара для сопоставления между магазинами: бренд, объем/вес, токены и триграммы.
+ */
+public final class ProductTitleParser {
+
+    private static final Pattern QUOTED = Pattern.compile("[«\"“]([^»\"”]{2,40})[»\"”]");
+    private static final Pattern AMOUNT = Pattern.compile(
+            "(\\d+(?:[.,]\\d+)?)\\s*(мл|л|ml|l|кг|г|гр|kg|g)(?![a-zа-я])",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern NON_WORD = Pattern.compile("[^a-zа-я0-9]+");
+
+    // Общие слова категории, которые не помогают отличить один товар от другого
+    private static final Set<String> STOP_WORDS = Set.of(
+            "вода", "питьевая", "минеральная", "столовая", "лечебно", "лечебная", "природная", "артезианская",
+            "родниковая", "негазированная", "газированная", "сильногазированная", "слабогазированная", "газ", "газа",
+            "без", "для", "детей", "детская", "с", "со", "в", "и", "на", "из", "по",
+            "пэт", "бутылка", "бутылке", "стекло", "ст", "пл", "шт", "упаковка", "уп",
+            "напиток", "сок", "нектар", "молоко", "мл", "л", "г", "гр", "кг", "ml", "l", "g", "kg");
+
+    private ProductTitleParser() {
+    }
+
+    /**
+     * Разбор названия и (необязательного) поля объема
+     */
+    public static ParsedTitle parse(String title, String volume) {
+        String lower = normalize(title);
+
+        Long amount = parseAmount(volume);
+        if (amount == null) {
+            amount = parseAmount(title);
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(lower)) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token) && !isNumber(token)) {
+                tokens.add(token);
+            }
+        }
+
+        String brand = null;
+        Matcher quoted = QUOTED.matcher(title == null ? "" : title);
+        if (quoted.find()) {
+            brand = NON_WORD.matcher(normalize(quoted.group(1))).replaceAll("");
+        } else if (!tokens.isEmpty()) {
+            brand = tokens.get(0);
+        }
+        if (brand != null && brand.isEmpty()) {
+            brand = null;
+        }
+
+        return new ParsedTitle(brand, amount, new LinkedHashSet<>(tokens), trigrams(String.join(" ", tokens)));
+    }
+
+    /**
+     * Объем в миллилитрах или вес в граммах (литры и килограммы переводятся в тысячные)
+     */
+    public static Long parseAmount(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher matcher = AMOUNT.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        double value = Double.parseDouble(matcher.group(1).replace(',', '.'));
+        String unit = matcher.group(2).toLowerCase(Locale.ROOT);
+        boolean thousands = unit.equals("л") || unit.equals("l") || unit.equals("кг") || unit.equals("kg");
+        return Math.round(thousands ? value * 1000 : value);
+    }
+
+    /**
+     * Коэффициент Дайса по отсортированным триграммам
+     */
+    public static double trigramSimilarity(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return 2.0 * common / (a.length + b.length);
+    }
+
+    /**
+     * Коэффициент Жаккара по токенам
+     */
+    public static double tokenSimilarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Триграммы слов (с пробелами по краям, как в pg_trgm), упакованные в long и отсортированные
+    private static long[] trigrams(String text) {
+        if (text.isEmpty()) {
+            return new long[0];
+        }
+        String padded = "  " + text.replace(" ", "  ") + " ";
+        long[] result = new long[padded.length()];
+        int count = 0;
+        for (int i = 0; i + 2 < padded.length(); i++) {
+            char a = padded.charAt(i);
+            char b = padded.charAt(i + 1);
+            char c = padded.charAt(i + 2);
+            if (b == ' ' && c == ' ') {
+                continue;
+            }
+            result[count++] = ((long) a << 32) | ((long) b << 16) | c;
+        }
+        long[] sorted = Arrays.copyOf(result, count);
+        Arrays.sort(sorted);
+        // Убираем повторы
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    /**
+     * Результат разбора названия
+     */
+    public record ParsedTitle(String brand, Long amount, Set<String> tokens, long[] trigrams) {
+
+        /**
+         * Ключ блокировки: сравниваются только товары с одинаковым брендом и объемом
+         */
+        public String blockKey() {
+            if (brand == null) {
+                return null;
+            }
+            return brand + "|" + (amount == null ? "?" : amount);
+        }
+    }
+}
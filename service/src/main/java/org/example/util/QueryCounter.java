@@ -0,0 +1,151 @@
+package org.example.util;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчик SQL-запросов по эндпоинтам для нагрузочных прогонов (app.diagnostics.query-count.enabled).
+ * DataSource оборачивается прокси, который считает выполненные statement'ы в потоке текущего HTTP-запроса;
+ * запросы фоновых потоков (парсинг, сохранение) не учитываются. Пакетное выполнение считается одним запросом.
+ */
+@Component
+@ConditionalOnProperty(name = "app.diagnostics.query-count.enabled", havingValue = "true")
+public class QueryCounter implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<Class<?>> WRAPPED_TYPES = Set.of(
+            Connection.class, Statement.class, PreparedStatement.class, CallableStatement.class);
+
+    // Счетчик запроса, который обрабатывает текущий поток (null - поток не в HTTP-запросе)
+    private final ThreadLocal<long[]> current = new ThreadLocal<>();
+    private final Map<String, EndpointQueries> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())) {
+            return wrap(DataSource.class, dataSource);
+        }
+        return bean;
+    }
+
+    public void begin() {
+        current.set(new long[1]);
+    }
+
+    /**
+     * Завершить запрос и отнести его запросы к эндпоинту
+     */
+    public void end(String endpoint) {
+        long[] counter = current.get();
+        current.remove();
+        if (counter == null || endpoint == null) {
+            return;
+        }
+        EndpointQueries stats = endpoints.computeIfAbsent(endpoint, key -> new EndpointQueries());
+        stats.requests.increment();
+        stats.queries.add(counter[0]);
+        stats.max.accumulateAndGet(counter[0], Math::max);
+    }
+
+    /**
+     * Запросы к БД по эндпоинтам, начиная с самых нагружающих
+     */
+    public List<EndpointStats> getStats() {
+        return endpoints.entrySet().stream()
+                .map(entry -> {
+                    long requests = entry.getValue().requests.sum();
+                    long queries = entry.getValue().queries.sum();
+                    return EndpointStats.builder()
+                            .endpoint(entry.getKey())
+                            .requests(requests)
+                            .queries(queries)
+                            .queriesPerRequest(requests == 0 ? 0 : (double) queries / requests)
+                            .maxQueries(entry.getValue().max.get())
+                            .build();
+                })
+                .sorted(Comparator.comparingLong(EndpointStats::getQueries).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T wrap(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new CountingHandler(target));
+    }
+
+    /**
+     * Прокси DataSource, соединений и statement'ов: оборачивает возвращаемые соединения и statement'ы,
+     * считает вызовы execute*
+     */
+    private final class CountingHandler implements InvocationHandler {
+        private final Object target;
+
+        CountingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (target instanceof Statement && EXECUTE_METHODS.contains(method.getName())) {
+                long[] counter = current.get();
+                if (counter != null) {
+                    counter[0]++;
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result != null && WRAPPED_TYPES.contains(returnType)) {
+                return wrapUnchecked(returnType, result);
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T wrapUnchecked(Class<T> type, Object target) {
+        return wrap(type, (T) target);
+    }
+
+    private static final class EndpointQueries {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class EndpointStats {
+        private String endpoint;           // Метод и шаблон пути, например GET /api/products/{id}
+        private long requests;
+        private long queries;
+        private double queriesPerRequest;
+        private long maxQueries;
+    }
+}
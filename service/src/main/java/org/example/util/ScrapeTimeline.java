@@ -0,0 +1,137 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хронология одного прогона парсинга магазина: отрезки времени по фазам (получение браузера, загрузка страницы,
+ * шаги прокрутки, извлечение карточек, сохранение) с числом обработанных элементов.
+ * Хронология привязывается к потоку через attach(); код парсеров пишет в current() и не знает о прогоне.
+ * Вне прогона current() возвращает NONE, запись в который ничего не делает.
+ * Отрезки пишутся из нескольких потоков (парсер, потребитель сохранения, ответы HTTP), поэтому методы синхронизированы.
+ * Сверх maxSpans отдельные отрезки не хранятся, но продолжают учитываться в итогах по фазам.
+ */
+public final class ScrapeTimeline {
+
+    // Фазы прогона
+    public static final String DRIVER_ACQUIRE = "driver-acquire";
+    public static final String NAVIGATION = "navigation";
+    public static final String SCROLL = "scroll";
+    public static final String EXTRACTION = "extraction";
+    public static final String HTTP_PAGE = "http-page";
+    public static final String PERSIST = "persist";
+    public static final String PERSIST_WAIT = "persist-wait";  // Парсер ждет места в буфере сохранения
+
+    public static final ScrapeTimeline NONE = new ScrapeTimeline(0, false);
+
+    private static final ThreadLocal<ScrapeTimeline> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxSpans;
+    private final long startNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>();
+    private final Map<String, PhaseTotals> phases = new LinkedHashMap<>();
+    private int droppedSpans;
+
+    public ScrapeTimeline(int maxSpans) {
+        this(maxSpans, true);
+    }
+
+    private ScrapeTimeline(int maxSpans, boolean enabled) {
+        this.maxSpans = maxSpans;
+        this.enabled = enabled;
+    }
+
+    public static ScrapeTimeline current() {
+        ScrapeTimeline timeline = CURRENT.get();
+        return timeline != null ? timeline : NONE;
+    }
+
+    /**
+     * Сделать хронологию текущей для потока до закрытия возвращенного Scope
+     */
+    public Scope attach() {
+        ScrapeTimeline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Записать отрезок фазы phase, начатый в startNanos (System.nanoTime()) и закончившийся сейчас
+     */
+    public void record(String phase, long startNanos, int items) {
+        record(phase, startNanos, items, null);
+    }
+
+    public void record(String phase, long startNanos, int items, String detail) {
+        if (!enabled) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        synchronized (this) {
+            PhaseTotals totals = phases.computeIfAbsent(phase, key -> new PhaseTotals());
+            totals.count++;
+            totals.items += items;
+            totals.totalNanos += durationNanos;
+            totals.maxNanos = Math.max(totals.maxNanos, durationNanos);
+            if (spans.size() < maxSpans) {
+                spans.add(new Span(phase, TimeUnit.NANOSECONDS.toMillis(startNanos - this.startNanos),
+                        TimeUnit.NANOSECONDS.toMicros(durationNanos), items, detail));
+            } else {
+                droppedSpans++;
+            }
+        }
+    }
+
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public synchronized int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    /**
+     * Итоги по фазам в порядке первого появления фазы
+     */
+    public synchronized List<PhaseSummary> getPhases() {
+        List<PhaseSummary> result = new ArrayList<>(phases.size());
+        phases.forEach((phase, totals) -> result.add(new PhaseSummary(phase, totals.count, totals.items,
+                TimeUnit.NANOSECONDS.toMillis(totals.totalNanos), TimeUnit.NANOSECONDS.toMillis(totals.maxNanos))));
+        return result;
+    }
+
+    private static final class PhaseTotals {
+        private int count;
+        private long items;
+        private long totalNanos;
+        private long maxNanos;
+    }
+
+    /**
+     * Отрезок: начало от старта прогона (мс), длительность (мкс), число элементов и необязательная подробность (URL)
+     */
+    public record Span(String phase, long startMs, long durationMicros, int items, String detail) {
+    }
+
+    /**
+     * Итог фазы за прогон; totalMs фаз может превышать длительность прогона, если фазы шли параллельно
+     */
+    public record PhaseSummary(String phase, int count, long items, long totalMs, long maxMs) {
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
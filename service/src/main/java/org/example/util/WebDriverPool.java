@@ -0,0 +1,276 @@
+package org.example.util;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул переиспользуемых браузерных сессий для парсеров.
+ * Ограничивает число одновременно запущенных Chrome, проверяет сессию перед выдачей,
+ * пересоздает браузер после N страниц и закрывает простаивающие сессии.
+ */
+@Component
+@Slf4j
+public class WebDriverPool {
+
+    private final int maxSize;
+    private final int maxPagesPerSession;
+    private final Duration idleTimeout;
+    private final Duration borrowTimeout;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, PooledDriver> borrowed = new IdentityHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    // Метрики пула
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+
+    public WebDriverPool(@Value("${app.selenium.pool.max-size:4}") int maxSize,
+                         @Value("${app.selenium.pool.max-pages-per-session:50}") int maxPagesPerSession,
+                         @Value("${app.selenium.pool.idle-timeout:10m}") Duration idleTimeout,
+                         @Value("${app.selenium.pool.borrow-timeout:5m}") Duration borrowTimeout) {
+        this.maxSize = maxSize;
+        this.maxPagesPerSession = maxPagesPerSession;
+        this.idleTimeout = idleTimeout;
+        this.borrowTimeout = borrowTimeout;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "webdriver-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeout.toSeconds() / 2, 1);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Взять браузер из пула. Блокируется, пока не освободится место в пуле.
+     */
+    public WebDriver borrow() throws InterruptedException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for a WebDriver session after " + borrowTimeout);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledDriver pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isAlive(pooled.driver)) {
+                    break;
+                }
+                log.warn("Discarding crashed WebDriver session");
+                crashed.incrementAndGet();
+                quietQuit(pooled.driver);
+            }
+            if (pooled == null) {
+                pooled = new PooledDriver(DriverUtils.getDriver());
+                created.incrementAndGet();
+                log.info("Started new WebDriver session ({} live)", liveSessions() + 1);
+            }
+            synchronized (borrowed) {
+                borrowed.put(pooled.driver, pooled);
+            }
+            // Ожидание места в пуле и запуск браузера, если свободного не было
+            ScrapeTimeline.current().record(ScrapeTimeline.DRIVER_ACQUIRE, start, 1);
+            return pooled.driver;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Вернуть браузер в пул после успешной работы.
+     */
+    public void release(WebDriver driver) {
+        PooledDriver pooled = detach(driver);
+        if (pooled == null) {
+            return;
+        }
+        try {
+            pooled.pagesServed++;
+            if (pooled.pagesServed >= maxPagesPerSession) {
+                log.info("Recycling WebDriver session after {} pages", pooled.pagesServed);
+                recycled.incrementAndGet();
+                quietQuit(pooled.driver);
+            } else if (!isAlive(pooled.driver) || !resetPage(pooled.driver)) {
+                crashed.incrementAndGet();
+                quietQuit(pooled.driver);
+            } else {
+                pooled.lastUsed = Instant.now();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Закрыть браузер, который вернул ошибку сессии, вместо возврата в пул.
+     */
+    public void invalidate(WebDriver driver) {
+        PooledDriver pooled = detach(driver);
+        if (pooled == null) {
+            return;
+        }
+        crashed.incrementAndGet();
+        quietQuit(pooled.driver);
+        permits.release();
+    }
+
+    /**
+     * Метрики пула
+     */
+    public PoolStats getStats() {
+        long borrowCount = borrows.get();
+        int borrowedCount;
+        synchronized (borrowed) {
+            borrowedCount = borrowed.size();
+        }
+        return PoolStats.builder()
+                .maxSize(maxSize)
+                .liveSessions(idle.size() + borrowedCount)
+                .idleSessions(idle.size())
+                .borrowedSessions(borrowedCount)
+                .created(created.get())
+                .recycled(recycled.get())
+                .crashed(crashed.get())
+                .evicted(evicted.get())
+                .borrows(borrowCount)
+                .avgBorrowWaitMs(borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(borrowWaitNanos.get() / borrowCount))
+                .maxBorrowWaitMs(TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get()))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        PooledDriver pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            quietQuit(pooled.driver);
+        }
+        synchronized (borrowed) {
+            borrowed.keySet().forEach(this::quietQuit);
+            borrowed.clear();
+        }
+    }
+
+    private void evictIdle() {
+        Instant threshold = Instant.now().minus(idleTimeout);
+        List<PooledDriver> expired = new ArrayList<>();
+        for (Iterator<PooledDriver> it = idle.iterator(); it.hasNext(); ) {
+            PooledDriver pooled = it.next();
+            if (pooled.lastUsed.isBefore(threshold) && idle.remove(pooled)) {
+                expired.add(pooled);
+            }
+        }
+        for (PooledDriver pooled : expired) {
+            log.info("Closing WebDriver session idle since {}", pooled.lastUsed);
+            evicted.incrementAndGet();
+            quietQuit(pooled.driver);
+        }
+    }
+
+    private PooledDriver detach(WebDriver driver) {
+        synchronized (borrowed) {
+            return borrowed.remove(driver);
+        }
+    }
+
+    private int liveSessions() {
+        synchronized (borrowed) {
+            return idle.size() + borrowed.size();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrows.incrementAndGet();
+        borrowWaitNanos.addAndGet(nanos);
+        maxBorrowWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private boolean isAlive(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean resetPage(WebDriver driver) {
+        try {
+            // Освобождаем память страницы, чтобы простаивающий браузер не держал тяжелый DOM
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void quietQuit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.debug("Error closing WebDriver: {}", e.getMessage());
+        }
+    }
+
+    private static final class PooledDriver {
+        private final WebDriver driver;
+        private int pagesServed;
+        private Instant lastUsed = Instant.now();
+
+        private PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+
+    /**
+     * Статистика пула браузеров
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class PoolStats {
+        private int maxSize;
+        private int liveSessions;
+        private int idleSessions;
+        private int borrowedSessions;
+        private long created;
+        private long recycled;
+        private long crashed;
+        private long evicted;
+        private long borrows;
+        private long avgBorrowWaitMs;
+        private long maxBorrowWaitMs;
+    }
+}
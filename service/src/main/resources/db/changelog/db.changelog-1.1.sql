@@ -0,0 +1,15 @@
+ALTER TABLE products ADD COLUMN IF NOT EXISTS content_hash BIGINT;   -- Отпечаток названия, цен и объема
+
+
+
+-- updated_at меняется только при реальном изменении содержимого, а не при каждом парсинге
+DROP TRIGGER IF EXISTS update_products_updated_at ON products;
+
+CREATE TRIGGER update_products_updated_at BEFORE UPDATE ON products
+    FOR EACH ROW
+    WHEN (OLD.content_hash IS DISTINCT FROM NEW.content_hash)
+    EXECUTE FUNCTION update_updated_at_column();
+
+
+
+COMMENT ON COLUMN products.content_hash IS 'Отпечаток содержимого (название, цены, объем) для пропуска неизмененных товаров';
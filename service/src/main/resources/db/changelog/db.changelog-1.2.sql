@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS product_price_history (
+                                                     product_id BIGINT NOT NULL,
+                                                     recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                                     old_price DECIMAL(10,2),
+    new_price DECIMAL(10,2),
+    PRIMARY KEY (product_id, recorded_at),
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+    ) PARTITION BY RANGE (recorded_at);
+
+
+
+COMMENT ON TABLE product_price_history IS 'История изменения цен товаров, секции по месяцам создаются приложением';
+COMMENT ON COLUMN product_price_history.old_price IS 'Старая цена на момент изменения';
+COMMENT ON COLUMN product_price_history.new_price IS 'Новая цена на момент изменения';
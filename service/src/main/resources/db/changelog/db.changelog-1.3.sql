@@ -0,0 +1,5 @@
+-- Индекс для постраничной выдачи по (title, id): и OFFSET-страниц, и keyset-курсоров
+CREATE INDEX IF NOT EXISTS idx_products_title_id ON products(title, id);
+
+-- Префикс нового индекса полностью покрывает старый
+DROP INDEX IF EXISTS idx_products_title;
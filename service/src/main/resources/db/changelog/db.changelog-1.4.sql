@@ -0,0 +1,16 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+
+
+-- Полнотекстовый вектор по названию и объему (русский словарь), пересчитывается самой БД
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('russian', coalesce(title, '') || ' ' || coalesce(volume, ''))) STORED;
+
+
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_products_title_trgm ON products USING GIN (lower(title) gin_trgm_ops);
+
+
+
+COMMENT ON COLUMN products.search_vector IS 'Полнотекстовый индекс по названию и объему для поиска';
@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS product_matches (
+                                               product_id BIGINT NOT NULL,
+                                               matched_product_id BIGINT NOT NULL,
+                                               score REAL NOT NULL,
+                                               matched_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                               PRIMARY KEY (product_id, matched_product_id),
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+    FOREIGN KEY (matched_product_id) REFERENCES products(id) ON DELETE CASCADE
+    );
+
+
+
+CREATE INDEX idx_product_matches_matched_product_id ON product_matches(matched_product_id);
+
+
+
+COMMENT ON TABLE product_matches IS 'Один и тот же товар в разных магазинах (пара хранится в обе стороны)';
+COMMENT ON COLUMN product_matches.score IS 'Похожесть названий от 0 до 1';
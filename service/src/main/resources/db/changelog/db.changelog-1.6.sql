@@ -0,0 +1,22 @@
+CREATE TABLE IF NOT EXISTS crawl_frontier (
+                                              id BIGSERIAL PRIMARY KEY,
+                                              shop VARCHAR(50) NOT NULL,
+    url TEXT NOT NULL UNIQUE,
+    priority INTEGER NOT NULL DEFAULT 0,
+    discovered_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_crawled_at TIMESTAMP,
+    next_crawl_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_status VARCHAR(20),
+    last_products INTEGER,
+    failures INTEGER NOT NULL DEFAULT 0
+    );
+
+
+
+CREATE INDEX idx_crawl_frontier_shop_next_crawl_at ON crawl_frontier(shop, next_crawl_at);
+
+
+
+COMMENT ON TABLE crawl_frontier IS 'Страницы категорий магазинов для обхода каталога';
+COMMENT ON COLUMN crawl_frontier.priority IS 'Чем больше, тем раньше категория обходится (число изменившихся товаров в прошлый раз)';
+COMMENT ON COLUMN crawl_frontier.next_crawl_at IS 'Раньше этого момента категория повторно не обходится (с учетом отката после ошибок)';
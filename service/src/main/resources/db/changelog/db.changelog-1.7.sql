@@ -0,0 +1,25 @@
+ALTER TABLE products ADD COLUMN IF NOT EXISTS old_price_kopecks BIGINT;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS new_price_kopecks BIGINT;
+
+UPDATE products
+SET old_price_kopecks = ROUND(old_price_decimal * 100),
+    new_price_kopecks = ROUND(new_price_decimal * 100);
+
+ALTER TABLE products DROP COLUMN IF EXISTS old_price;
+ALTER TABLE products DROP COLUMN IF EXISTS new_price;
+ALTER TABLE products DROP COLUMN IF EXISTS old_price_decimal;
+ALTER TABLE products DROP COLUMN IF EXISTS new_price_decimal;
+
+-- Отпечатки содержимого теперь считаются по ценам в копейках, старые сбрасываются
+UPDATE products SET content_hash = NULL;
+
+COMMENT ON COLUMN products.old_price_kopecks IS 'Старая (основная) цена в копейках';
+COMMENT ON COLUMN products.new_price_kopecks IS 'Новая (текущая) цена в копейках';
+
+ALTER TABLE product_price_history RENAME COLUMN old_price TO old_price_kopecks;
+ALTER TABLE product_price_history RENAME COLUMN new_price TO new_price_kopecks;
+ALTER TABLE product_price_history ALTER COLUMN old_price_kopecks TYPE BIGINT USING ROUND(old_price_kopecks * 100);
+ALTER TABLE product_price_history ALTER COLUMN new_price_kopecks TYPE BIGINT USING ROUND(new_price_kopecks * 100);
+
+COMMENT ON COLUMN product_price_history.old_price_kopecks IS 'Старая цена на момент изменения, в копейках';
+COMMENT ON COLUMN product_price_history.new_price_kopecks IS 'Новая цена на момент изменения, в копейках';
@@ -0,0 +1,2 @@
+-- Корзина создается без пользователя (POST /api/cart/create): сущность Cart не хранит владельца
+ALTER TABLE carts ALTER COLUMN user_id DROP NOT NULL;
@@ -0,0 +1,42 @@
+package org.example.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductJsonTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void onlyRublePricesAreSerialized() {
+        Product product = Product.builder()
+                .id(1L)
+                .title("Молоко 1 л")
+                .shop(Shop.LAVKA)
+                .oldPriceStr("129 ₽")
+                .newPriceStr("99,90 ₽")
+                .oldPriceKopecks(129_00L)
+                .newPriceKopecks(99_90L)
+                .contentHash(42L)
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        JsonNode json = mapper.valueToTree(product);
+
+        assertThat(json.has("oldPriceStr")).isFalse();
+        assertThat(json.has("newPriceStr")).isFalse();
+        assertThat(json.has("oldPriceKopecks")).isFalse();
+        assertThat(json.has("newPriceKopecks")).isFalse();
+        assertThat(json.has("currentPriceKopecks")).isFalse();
+        assertThat(json.has("contentHash")).isFalse();
+        assertThat(json.get("currentPrice").decimalValue()).isEqualByComparingTo(new BigDecimal("99.90"));
+        assertThat(json.get("oldPrice").decimalValue()).isEqualByComparingTo(new BigDecimal("129.00"));
+        assertThat(json.get("newPrice").decimalValue()).isEqualByComparingTo(new BigDecimal("99.90"));
+    }
+}
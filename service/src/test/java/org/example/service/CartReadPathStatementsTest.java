@@ -0,0 +1,168 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.service.CartService.BasketOptimizationResult;
+import org.example.service.CartService.CartView;
+import org.example.util.QueryCounter;
+import org.example.util.QueryCounter.EndpointStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на путях чтения корзины не зависит от числа позиций, а ответ растет линейно
+ * с небольшим размером позиции: в JSON нет целых сущностей Product.
+ * JPA-запросы видны в статистике Hibernate, JdbcTemplate - только в счетчике на уровне DataSource (QueryCounter).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CartReadPathStatementsTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Позиция корзины: id, количество и краткие данные товара (~120 байт; с сущностью Product было бы больше 300)
+    private static final int MAX_CART_ITEM_BYTES = 160;
+    // Назначение позиции: товар, магазин, цена и количество (~110 байт)
+    private static final int MAX_ASSIGNMENT_BYTES = 160;
+    // Итоги корзины и заказы по магазинам
+    private static final int MAX_ENVELOPE_BYTES = 300;
+
+    private final List<Long> productIds = new ArrayList<>();
+    private long userId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String suffix = UUID.randomUUID().toString();
+        userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, email, password) VALUES (?, ?, 'x') RETURNING id",
+                Long.class, "statements-test-" + suffix, suffix + "@test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        productIds.forEach(id -> jdbcTemplate.update("DELETE FROM products WHERE id = ?", id));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void getCartIsOneStatement(int items) {
+        long cartId = createCart(items);
+
+        statistics.clear();
+        CartView cart = counted("getCart", () -> cartService.getCart(cartId));
+
+        assertThat(cart.items()).hasSize(items);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(lastCount("getCart")).isEqualTo(1);
+        assertCompactJson(cart, items, MAX_CART_ITEM_BYTES);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void optimizeCartIsOneStatement(int items) {
+        long cartId = createCart(items);
+
+        statistics.clear();
+        BasketOptimizationResult result = counted("optimizeCart", () -> cartService.optimizeCart(cartId));
+
+        assertThat(result.getAssignments()).hasSize(items);
+        assertThat(result.getUnavailableProductIds()).isEmpty();
+        // Оптимизатор читает через JdbcTemplate, Hibernate не выполняет ни одного запроса
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(lastCount("optimizeCart")).isEqualTo(1);
+        assertCompactJson(result, items, MAX_ASSIGNMENT_BYTES);
+    }
+
+    /**
+     * Корзина из items позиций Лавки, у каждой есть сопоставленный товар Самоката
+     */
+    private long createCart(int items) {
+        String suffix = UUID.randomUUID().toString();
+        long cartId = jdbcTemplate.queryForObject("INSERT INTO carts (user_id) VALUES (?) RETURNING id", Long.class, userId);
+        for (int i = 0; i < items; i++) {
+            long lavka = insertProduct("LAVKA", "Товар " + i, suffix, 10_000L + i);
+            long samokat = insertProduct("SAMOKAT", "Товар " + i, suffix, 9_000L + i);
+            jdbcTemplate.update("INSERT INTO product_matches (product_id, matched_product_id, score) VALUES (?, ?, 0.9), (?, ?, 0.9)",
+                    lavka, samokat, samokat, lavka);
+            jdbcTemplate.update("INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, 1)", cartId, lavka);
+        }
+        return cartId;
+    }
+
+    private long insertProduct(String shop, String title, String suffix, long priceKopecks) {
+        long id = jdbcTemplate.queryForObject(
+                "INSERT INTO products (title, ref, shop, old_price_kopecks) VALUES (?, ?, ?, ?) RETURNING id",
+                Long.class, title, "test://statements/" + suffix + "/" + shop + "/" + title, shop, priceKopecks);
+        productIds.add(id);
+        return id;
+    }
+
+    /**
+     * Ответ в том виде, в каком его отдает контроллер: без полей сущности Product и не больше bytesPerItem на позицию
+     */
+    private void assertCompactJson(Object response, int items, int bytesPerItem) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        assertThat(json).doesNotContain("\"contentHash\"", "\"updatedAt\"", "\"ref\"", "\"oldPrice\"", "\"newPrice\"");
+        assertThat(json.getBytes(StandardCharsets.UTF_8).length)
+                .as("JSON size for %d items", items)
+                .isLessThanOrEqualTo(MAX_ENVELOPE_BYTES + items * bytesPerItem);
+    }
+
+    private <T> T counted(String name, Supplier<T> call) {
+        queryCounter.reset();
+        queryCounter.begin();
+        try {
+            return call.get();
+        } finally {
+            queryCounter.end(name);
+        }
+    }
+
+    private long lastCount(String name) {
+        return queryCounter.getStats().stream()
+                .filter(stats -> stats.getEndpoint().equals(name))
+                .mapToLong(EndpointStats::getQueries)
+                .sum();
+    }
+}
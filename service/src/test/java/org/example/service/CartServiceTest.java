@@ -0,0 +1,182 @@
+package org.example.service;
+
+import org.example.service.CartService.CartChangeResult;
+import org.example.service.CartService.CartChanges;
+import org.example.service.CartService.CartItemChange;
+import org.example.service.CartService.ChangeMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> productIds = new ArrayList<>();
+    private long userId;
+    private long cartId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, email, password) VALUES (?, ?, 'x') RETURNING id",
+                Long.class, "cart-test-" + suffix, suffix + "@test");
+        cartId = jdbcTemplate.queryForObject("INSERT INTO carts (user_id) VALUES (?) RETURNING id", Long.class, userId);
+        for (int i = 0; i < 3; i++) {
+            productIds.add(jdbcTemplate.queryForObject(
+                    "INSERT INTO products (title, ref, shop, old_price_kopecks) VALUES (?, ?, 'LAVKA', 10000) RETURNING id",
+                    Long.class, "Товар корзины " + i, "test://cart/" + suffix + "/" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        productIds.forEach(id -> jdbcTemplate.update("DELETE FROM products WHERE id = ?", id));
+    }
+
+    @Test
+    void tooManyChangesIsBadRequest() {
+        List<CartItemChange> items = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) {
+            items.add(new CartItemChange(productIds.get(0), 1));
+        }
+
+        assertThatThrownBy(() -> cartService.applyChanges(cartId, new CartChanges(ChangeMode.ADD, items)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void unknownCartIsNotFound() {
+        long missingCart = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1000 FROM carts", Long.class);
+
+        assertThatThrownBy(() -> cartService.applyChanges(missingCart, add(productIds.get(0), 1)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void unknownProductsAreReportedNotWritten() {
+        long missingProduct = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1000 FROM products", Long.class);
+
+        CartChangeResult result = cartService.applyChanges(cartId, new CartChanges(ChangeMode.SET, List.of(
+                new CartItemChange(productIds.get(0), 2),
+                new CartItemChange(missingProduct, 1))));
+
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getUnknownProductIds()).containsExactly(missingProduct);
+        assertThat(cartService.getCart(cartId).items()).hasSize(1);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        Long productId = productIds.get(0);
+        cartService.applyChanges(cartId, add(productId, 1));
+
+        int threads = 8;
+        int addsPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < addsPerThread; i++) {
+                        cartService.applyChanges(cartId, add(productId, 1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(quantity(productId)).isEqualTo(1 + threads * addsPerThread);
+    }
+
+    @Test
+    void addInsertsUpdatesAndReportsUnknownProducts() {
+        Long first = productIds.get(0);
+        Long second = productIds.get(1);
+        cartService.applyChanges(cartId, add(first, 2));
+
+        CartChangeResult result = cartService.applyChanges(cartId, new CartChanges(ChangeMode.ADD, List.of(
+                new CartItemChange(first, 3),
+                new CartItemChange(second, 1),
+                new CartItemChange(second, 1),
+                new CartItemChange(-1L, 5))));
+
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getUnknownProductIds()).containsExactly(-1L);
+        assertThat(quantity(first)).isEqualTo(5);
+        assertThat(quantity(second)).isEqualTo(2);
+    }
+
+    @Test
+    void negativeAddDecreasesOrRemovesItem() {
+        Long first = productIds.get(0);
+        Long second = productIds.get(1);
+        cartService.applyChanges(cartId, new CartChanges(ChangeMode.SET, List.of(
+                new CartItemChange(first, 5),
+                new CartItemChange(second, 2))));
+
+        CartChangeResult result = cartService.applyChanges(cartId, new CartChanges(ChangeMode.ADD, List.of(
+                new CartItemChange(first, -2),
+                new CartItemChange(second, -2),
+                new CartItemChange(productIds.get(2), -1))));
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getRemoved()).isEqualTo(1);
+        assertThat(result.getInserted()).isZero();
+        assertThat(quantity(first)).isEqualTo(3);
+        assertThat(quantity(second)).isNull();
+        assertThat(quantity(productIds.get(2))).isNull();
+    }
+
+    @Test
+    void setReplacesQuantity() {
+        Long first = productIds.get(0);
+        cartService.applyChanges(cartId, add(first, 4));
+
+        CartChangeResult result = cartService.applyChanges(cartId, new CartChanges(ChangeMode.SET, List.of(new CartItemChange(first, 7))));
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(quantity(first)).isEqualTo(7);
+    }
+
+    private static CartChanges add(Long productId, int quantity) {
+        return new CartChanges(ChangeMode.ADD, List.of(new CartItemChange(productId, quantity)));
+    }
+
+    private Integer quantity(Long productId) {
+        List<Integer> rows = jdbcTemplate.queryForList(
+                "SELECT quantity FROM cart_items WHERE cart_id = ? AND product_id = ?", Integer.class, cartId, productId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
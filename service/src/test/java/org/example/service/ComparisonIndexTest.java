@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.ProductMatchRepository;
+import org.example.repository.ProductMatchRepository.Match;
+import org.example.repository.ProductRepository;
+import org.example.service.ProductService.ProductComparison;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ComparisonIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductMatchRepository matchRepository = mock(ProductMatchRepository.class);
+    private final List<Product> products = new ArrayList<>();
+    private ComparisonIndex index;
+
+    @BeforeEach
+    void setUp() {
+        long id = 1;
+        for (int i = 0; i < 5; i++) {
+            String title = "Молоко " + i;
+            products.add(product(id++, title, Shop.LAVKA, 100_00L));
+            products.add(product(id++, title, Shop.SAMOKAT, 90_00L));
+        }
+        when(productRepository.findProductsWithPrices()).thenReturn(products);
+        when(matchRepository.findAllPairs()).thenReturn(List.of());
+        index = new ComparisonIndex(productRepository, matchRepository);
+    }
+
+    @Test
+    void matchedProductsArePairedRegardlessOfTitle() {
+        products.add(product(100, "Простоквашино молоко 3,2% 930 мл", Shop.LAVKA, 120_00L));
+        products.add(product(101, "Молоко Простоквашино пастеризованное 3.2%, 0.93 л", Shop.SAMOKAT, 110_00L));
+        // Одинаковые названия, но сопоставлены с другими товарами - по названию их больше не склеиваем
+        products.add(product(102, "Кефир 1%", Shop.LAVKA, 80_00L));
+        products.add(product(103, "Кефир 1%", Shop.SAMOKAT, 70_00L));
+        when(matchRepository.findAllPairs()).thenReturn(List.of(
+                new Match(100, 101, 0.8),
+                new Match(102, 1, 0.6)));
+
+        List<ProductComparison> all = index.getAll();
+
+        assertThat(all).anySatisfy(comparison -> {
+            assertThat(comparison.getLavkaProduct().getId()).isEqualTo(100L);
+            assertThat(comparison.getSamokatProduct().getId()).isEqualTo(101L);
+        });
+        assertThat(all).noneSatisfy(comparison -> assertThat(comparison.getSamokatProduct().getId()).isEqualTo(103L));
+        // Пара 102-1 не состоялась: товар 1 - тоже Лавка, поэтому группа без Самоката
+        assertThat(names(all)).doesNotContain("Молоко 0", "Кефир 1%");
+    }
+
+    @Test
+    void matchesChangedEventRegroupsProducts() {
+        assertThat(names(index.getAll())).contains("Молоко 0", "Молоко 1");
+
+        // Лавка "Молоко 0" (id 1) теперь сопоставлена с Самокатом "Молоко 1" (id 4)
+        index.onMatchesChanged(new ProductMatchesChangedEvent(false, List.of(1L, 4L), List.of(new Match(1, 4, 0.7))));
+
+        List<ProductComparison> all = index.getAll();
+        assertThat(all).anySatisfy(comparison -> {
+            assertThat(comparison.getLavkaProduct().getId()).isEqualTo(1L);
+            assertThat(comparison.getSamokatProduct().getId()).isEqualTo(4L);
+        });
+        assertThat(all).hasSize(4);
+
+        // Сопоставление удалено - товары возвращаются в группы по названию
+        index.onMatchesChanged(new ProductMatchesChangedEvent(false, List.of(1L, 4L), List.of()));
+        assertThat(index.getAll()).hasSize(5);
+    }
+
+    @Test
+    void fullRebuildReloadsMatches() {
+        assertThat(index.getAll()).hasSize(5);
+
+        when(matchRepository.findAllPairs()).thenReturn(List.of(new Match(1, 4, 0.7)));
+        index.onMatchesChanged(ProductMatchesChangedEvent.rebuilt(List.of(new Match(1, 4, 0.7))));
+
+        assertThat(index.getAll()).hasSize(4);
+    }
+
+    @Test
+    void pagesArePartsOfSortedList() {
+        assertThat(index.getAll()).hasSize(5);
+        assertThat(names(index.getPage(0, 2))).containsExactly("Молоко 0", "Молоко 1");
+        assertThat(names(index.getPage(2, 2))).containsExactly("Молоко 4");
+        assertThat(index.getPage(3, 2)).isEmpty();
+    }
+
+    @Test
+    void changedProductsMoveWithinSortedPages() {
+        assertThat(names(index.getPage(0, 2))).containsExactly("Молоко 0", "Молоко 1");
+
+        // Пара "Молоко 4" переименована и встает первой, у "Молоко 0" пропала цена - пара исчезает
+        index.onProductsChanged(new ProductsChangedEvent(List.of(
+                product(9, "Айран", Shop.LAVKA, 100_00L),
+                product(10, "Айран", Shop.SAMOKAT, 90_00L),
+                Product.builder().id(1L).title("Молоко 0").shop(Shop.LAVKA).build())));
+
+        assertThat(names(index.getPage(0, 2))).containsExactly("Айран", "Молоко 1");
+        assertThat(names(index.getAll())).containsExactly("Айран", "Молоко 1", "Молоко 2", "Молоко 3");
+        // Индекс обновлен точечно, без повторного чтения каталога
+        verify(productRepository, times(1)).findProductsWithPrices();
+    }
+
+    @Test
+    void negativePageIsClampedToFirst() {
+        assertThat(names(index.getPage(-1, 2))).containsExactly("Молоко 0", "Молоко 1");
+    }
+
+    @Test
+    void nonPositiveSizeIsClampedToOneItem() {
+        assertThat(names(index.getPage(1, 0))).containsExactly("Молоко 1");
+        assertThat(names(index.getPage(0, -5))).containsExactly("Молоко 0");
+    }
+
+    @Test
+    void hugePageDoesNotOverflow() {
+        assertThat(index.getPage(Integer.MAX_VALUE, Integer.MAX_VALUE)).isEmpty();
+    }
+
+    private static List<String> names(List<ProductComparison> page) {
+        return page.stream().map(ProductComparison::getProductName).toList();
+    }
+
+    private static Product product(long id, String title, Shop shop, long priceKopecks) {
+        return Product.builder()
+                .id(id)
+                .title(title)
+                .shop(shop)
+                .oldPriceKopecks(priceKopecks)
+                .build();
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.configuration.CrawlProperties;
+import org.example.configuration.CrawlProperties.ShopCrawl;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.CrawlFrontierRepository;
+import org.example.repository.CrawlFrontierRepository.FrontierEntry;
+import org.example.service.CrawlService.ShopCrawlResult;
+import org.example.util.PageReadiness;
+import org.example.util.WebDriverPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Обход категорий на статических HTML-страницах локального HttpServer вместо сайта магазина:
+ * порядок фронтира, откат после ошибок и интервал между загрузками страниц магазина.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CrawlServiceTest {
+
+    private static final Shop SHOP = Shop.LAVKA;
+    private static final Duration RECRAWL = Duration.ofHours(1);
+    private static final Pattern PRODUCT = Pattern.compile(
+            "<div class=\"product\"><a href=\"([^\"]+)\">([^<]+)</a><span class=\"price\">([^<]+)</span></div>");
+
+    @Autowired
+    private CrawlFrontierRepository frontierRepository;
+
+    @Autowired
+    private ProductIngestionService ingestionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private HttpServer server;
+    private String baseUrl;
+    // Загрузки страниц категорий: путь и момент отправки запроса парсером
+    private final List<Fetch> fetches = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM crawl_frontier WHERE shop = ?", SHOP.name());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/category/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String name = path.substring("/category/".length());
+            boolean broken = name.startsWith("broken");
+            byte[] body = (broken ? "<html><body>Internal error</body></html>" : categoryPage(name)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(broken ? 500 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(null);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        jdbcTemplate.update("DELETE FROM crawl_frontier WHERE shop = ?", SHOP.name());
+        jdbcTemplate.update("DELETE FROM products WHERE ref LIKE ?", baseUrl + "/%");
+    }
+
+    @Test
+    void crawlsFrontierByPriorityThenNeverCrawledThenOldest() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        frontierRepository.addAll(SHOP, List.of(url("default"), url("stale"), url("fresh"), url("hot"), url("new")), LocalDateTime.now());
+        setEntry("hot", 7, now.minusHours(1));
+        setEntry("stale", 0, now.minusDays(3));
+        setEntry("fresh", 0, now.minusHours(3));
+
+        ShopCrawlResult result = crawlService(1, Duration.ZERO).crawlShop(new StaticHtmlParser());
+
+        // Сначала приоритет, затем не обходившиеся (по порядку добавления), затем давно обходившиеся
+        assertThat(fetchedCategories()).containsExactly("hot", "default", "new", "stale", "fresh");
+        assertThat(result.getCategoriesCrawled()).isEqualTo(5);
+        assertThat(result.getProductsFound()).isEqualTo(10);
+
+        FrontierEntry hot = entry("hot");
+        assertThat(hot.lastStatus()).isEqualTo("SUCCESS");
+        assertThat(hot.lastProducts()).isEqualTo(2);
+        // Приоритет - число изменившихся товаров: при первом обходе оба товара новые
+        assertThat(hot.priority()).isEqualTo(2);
+        assertThat(hot.nextCrawlAt()).isCloseTo(now.plus(RECRAWL), within(1, ChronoUnit.MINUTES));
+    }
+
+    @Test
+    void failedCategoryBacksOffExponentiallyUpToLimit() throws InterruptedException {
+        frontierRepository.addAll(SHOP, List.of(url("default"), url("broken-first"), url("broken-third"), url("broken-many")), LocalDateTime.now());
+        jdbcTemplate.update("UPDATE crawl_frontier SET failures = 2 WHERE url = ?", url("broken-third"));
+        jdbcTemplate.update("UPDATE crawl_frontier SET failures = 10 WHERE url = ?", url("broken-many"));
+        LocalDateTime start = LocalDateTime.now();
+
+        ShopCrawlResult result = crawlService(1, Duration.ZERO).crawlShop(new StaticHtmlParser());
+
+        assertThat(result.getCategoriesFailed()).isEqualTo(3);
+        assertThat(result.getCategoriesCrawled()).isEqualTo(1);
+
+        assertBackoff(entry("broken-first"), start, 1, 1);
+        assertBackoff(entry("broken-third"), start, 4, 3);
+        // Откат ограничен 2^4 интервалами повторного обхода
+        assertBackoff(entry("broken-many"), start, 16, 11);
+
+        // Успешный обход сбрасывает счетчик ошибок
+        jdbcTemplate.update("UPDATE crawl_frontier SET failures = 3 WHERE url = ?", url("default"));
+        jdbcTemplate.update("UPDATE crawl_frontier SET next_crawl_at = ? WHERE url = ?", start.minusMinutes(1), url("default"));
+        crawlService(1, Duration.ZERO).crawlShop(new StaticHtmlParser());
+        assertThat(entry("default").failures()).isZero();
+    }
+
+    @Test
+    void pageLoadsOfShopAreSpacedByPolitenessDelay() throws InterruptedException {
+        Duration delay = Duration.ofMillis(150);
+        frontierRepository.addAll(SHOP, IntStream.range(0, 6).mapToObj(i -> url("c" + i)).toList(), LocalDateTime.now());
+
+        long start = System.nanoTime();
+        ShopCrawlResult result = crawlService(3, delay).crawlShop(new StaticHtmlParser());
+        long elapsed = System.nanoTime() - start;
+
+        // Три воркера, но загрузки страниц одного магазина идут не чаще одной за интервал
+        assertThat(result.getCategoriesCrawled()).isEqualTo(7);
+        List<Long> starts = fetches.stream().map(Fetch::nanos).sorted().toList();
+        long tolerance = Duration.ofMillis(20).toNanos();
+        for (int i = 1; i < starts.size(); i++) {
+            assertThat(starts.get(i) - starts.get(i - 1))
+                    .as("gap before fetch %d", i)
+                    .isGreaterThanOrEqualTo(delay.toNanos() - tolerance);
+        }
+        assertThat(elapsed).isGreaterThanOrEqualTo(delay.multipliedBy(starts.size() - 1).toNanos() - tolerance);
+    }
+
+    @Test
+    void workersAreCappedAtShareOfDriverPool() {
+        ShopCrawl lavka = new ShopCrawl();
+        lavka.setConcurrency(3);
+        ShopCrawl samokat = new ShopCrawl();
+        samokat.setConcurrency(1);
+        CrawlProperties properties = new CrawlProperties();
+        properties.setShops(Map.of(Shop.LAVKA, lavka, Shop.SAMOKAT, samokat));
+
+        // Пул не меньше суммы concurrency - у каждого магазина столько воркеров, сколько задано
+        CrawlService roomy = new CrawlService(frontierRepository, ingestionService, driverPool(4),
+                mock(PageReadiness.class), properties, new SimpleAsyncTaskExecutor("crawl-test-"));
+        assertThat(roomy.workerCount(lavka)).isEqualTo(3);
+        assertThat(roomy.workerCount(samokat)).isEqualTo(1);
+
+        // Пул меньше суммы - доли пропорциональны concurrency, но хотя бы один воркер
+        CrawlService tight = new CrawlService(frontierRepository, ingestionService, driverPool(2),
+                mock(PageReadiness.class), properties, new SimpleAsyncTaskExecutor("crawl-test-"));
+        assertThat(tight.workerCount(lavka)).isEqualTo(1);
+        assertThat(tight.workerCount(samokat)).isEqualTo(1);
+    }
+
+    private CrawlService crawlService(int concurrency, Duration politenessDelay) {
+        ShopCrawl settings = new ShopCrawl();
+        settings.setConcurrency(concurrency);
+        settings.setPolitenessDelay(politenessDelay);
+        // Без страницы каталога поиск категорий через браузер не выполняется
+        settings.setCatalogUrl(null);
+
+        CrawlProperties properties = new CrawlProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setRecrawlInterval(RECRAWL);
+        properties.setShops(Map.of(SHOP, settings));
+
+        return new CrawlService(frontierRepository, ingestionService,
+                driverPool(8), mock(PageReadiness.class), properties, new SimpleAsyncTaskExecutor("crawl-test-"));
+    }
+
+    private static WebDriverPool driverPool(int maxSize) {
+        WebDriverPool pool = mock(WebDriverPool.class);
+        when(pool.getMaxSize()).thenReturn(maxSize);
+        return pool;
+    }
+
+    private void assertBackoff(FrontierEntry entry, LocalDateTime start, int multiplier, int failures) {
+        assertThat(entry.lastStatus()).isEqualTo("FAILED");
+        assertThat(entry.failures()).isEqualTo(failures);
+        assertThat(entry.nextCrawlAt()).isCloseTo(start.plus(RECRAWL.multipliedBy(multiplier)),
+                within(1, ChronoUnit.MINUTES));
+    }
+
+    private void setEntry(String category, int priority, LocalDateTime lastCrawledAt) {
+        jdbcTemplate.update("UPDATE crawl_frontier SET priority = ?, last_crawled_at = ? WHERE url = ?",
+                priority, lastCrawledAt, url(category));
+    }
+
+    private FrontierEntry entry(String category) {
+        return frontierRepository.findByShop(SHOP).stream()
+                .filter(entry -> entry.url().equals(url(category)))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<String> fetchedCategories() {
+        return fetches.stream().map(fetch -> fetch.path().substring("/category/".length())).collect(Collectors.toList());
+    }
+
+    private String url(String category) {
+        return baseUrl + "/category/" + category;
+    }
+
+    private static String categoryPage(String name) {
+        StringBuilder html = new StringBuilder("<html><body><h1>").append(name).append("</h1>");
+        for (int i = 0; i < 2; i++) {
+            html.append("<div class=\"product\"><a href=\"/product/").append(name).append('-').append(i).append("\">")
+                    .append("Товар ").append(name).append(' ').append(i)
+                    .append("</a><span class=\"price\">").append(100 + i).append(" ₽</span></div>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    /**
+     * Парсер статических страниц заглушки: товары - блоки div.product
+     */
+    private class StaticHtmlParser implements Parserable {
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @Override
+        public Shop getShop() {
+            return SHOP;
+        }
+
+        @Override
+        public String getDefaultCategoryUrl() {
+            return url("default");
+        }
+
+        @Override
+        public List<Product> getProducts(String categoryUrl) throws InterruptedException {
+            fetches.add(new Fetch(URI.create(categoryUrl).getPath(), System.nanoTime()));
+            HttpResponse<String> response;
+            try {
+                response = client.send(HttpRequest.newBuilder(URI.create(categoryUrl)).build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + " for " + categoryUrl);
+            }
+            List<Product> products = new ArrayList<>();
+            Matcher matcher = PRODUCT.matcher(response.body());
+            while (matcher.find()) {
+                products.add(Product.builder()
+                        .ref(baseUrl + matcher.group(1))
+                        .title(matcher.group(2))
+                        .newPriceStr(matcher.group(3))
+                        .shop(SHOP)
+                        .build());
+            }
+            return products;
+        }
+    }
+
+    private record Fetch(String path, long nanos) {
+    }
+}
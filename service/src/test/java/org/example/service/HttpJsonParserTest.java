@@ -0,0 +1,315 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.configuration.HttpScrapingProperties.ShopApi;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.util.ParsingMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HTTP backend парсинга и переход на браузер против заглушки API магазина на JDK HttpServer.
+ * Заглушка отдает категории: milk (23 товара), nototal (25 товаров без общего числа), empty, broken (HTTP 500),
+ * halfbroken (первая страница, затем HTTP 500).
+ */
+class HttpJsonParserTest {
+
+    private static final Shop SHOP = Shop.LAVKA;
+    private static final int PAGE_SIZE = 10;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ParsingMetrics metrics = new ParsingMetrics(registry);
+    private final HttpClient client = HttpClient.newHttpClient();
+    // Запросы к заглушке: путь и параметры
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/flat/", exchange -> serve(exchange, false));
+        server.createContext("/nested/", exchange -> serve(exchange, true));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetchesRemainingPagesByTotal() throws InterruptedException {
+        List<Integer> batches = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+
+        parser(flatApi()).streamProducts(category("milk"), batch -> {
+            batches.add(batch.size());
+            products.addAll(batch);
+        });
+
+        assertThat(batches).containsExactly(10, 10, 3);
+        assertThat(products).extracting(Product::getTitle).doesNotHaveDuplicates().hasSize(23);
+        assertThat(offsets()).containsExactlyInAnyOrder(0, 10, 20);
+    }
+
+    @Test
+    void withoutTotalFetchesPagesUntilShortPage() throws InterruptedException {
+        List<Product> products = parser(flatApi()).getProducts(category("nototal"));
+
+        assertThat(products).hasSize(25);
+        assertThat(offsets()).containsExactly(0, 10, 20);
+    }
+
+    @Test
+    void pageCountIsLimitedByMaxPages() throws InterruptedException {
+        ShopApi api = flatApi();
+        api.setMaxPages(2);
+
+        assertThat(parser(api).getProducts(category("milk"))).hasSize(20);
+        assertThat(offsets()).containsExactlyInAnyOrder(0, 10);
+    }
+
+    @Test
+    void mapsFieldsByPointers() throws InterruptedException {
+        ShopApi api = new ShopApi();
+        api.setUrlTemplate(baseUrl + "/nested/{category}?offset={offset}&limit={limit}");
+        api.setPageSize(PAGE_SIZE);
+        api.setItemsPointer("/data/items");
+        api.setTotalPointer("/data/meta/total");
+        api.setTitlePointer("/info/name");
+        api.setRefPointer("/link/href");
+        api.setRefPrefix("https://shop.test");
+        api.setVolumePointer("/pack");
+        api.setPricePointer("/cost/current");
+        api.setOldPricePointer("/cost/base");
+        api.setPriceScale(2);
+
+        List<Product> products = parser(api).getProducts(category("milk"));
+
+        // Неполная карточка на первой странице не обрывает пагинацию: страница полная по числу карточек
+        assertThat(products).hasSize(22);
+        assertThat(offsets()).containsExactlyInAnyOrder(0, 10, 20);
+        Product first = products.stream().filter(product -> product.getTitle().equals("Товар milk 0")).findFirst().orElseThrow();
+        assertThat(first.getRef()).isEqualTo("https://shop.test/p/milk-0");
+        assertThat(first.getVolume()).isEqualTo("1 л");
+        // Числовая и строковая цены в копейках сдвигаются на priceScale знаков
+        assertThat(first.getNewPriceStr()).isEqualTo("89.99");
+        assertThat(first.getOldPriceStr()).isEqualTo("109.90");
+        assertThat(first.getShop()).isEqualTo(SHOP);
+        // Карточка без названия пропускается и учитывается в метрике
+        assertThat(registry.counter("parsing.card.errors", "shop", SHOP.name(), "reason", "incomplete").count()).isEqualTo(1);
+    }
+
+    @Test
+    void httpErrorFails() {
+        assertThatThrownBy(() -> parser(flatApi()).getProducts(category("broken")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("HTTP 500");
+    }
+
+    @Test
+    void primaryResultIsUsedWithoutFallback() throws InterruptedException {
+        FakeParser browser = new FakeParser();
+        List<Product> products = new ArrayList<>();
+
+        new FallbackParser(parser(flatApi()), browser, metrics).streamProducts(category("milk"), products::addAll);
+
+        assertThat(products).hasSize(23);
+        assertThat(browser.calls).isEmpty();
+        assertThat(registry.find("parsing.fallbacks").counters()).isEmpty();
+    }
+
+    @Test
+    void fallsBackOnError() throws InterruptedException {
+        FakeParser browser = new FakeParser();
+        List<Product> products = new ArrayList<>();
+
+        new FallbackParser(parser(flatApi()), browser, metrics).streamProducts(category("broken"), products::addAll);
+
+        assertThat(browser.calls).containsExactly(category("broken"));
+        assertThat(products).extracting(Product::getTitle).containsExactly("Браузер broken");
+        assertThat(fallbacks("error")).isEqualTo(1);
+        assertThat(fallbacks("empty")).isZero();
+    }
+
+    @Test
+    void fallsBackOnEmptyResult() throws InterruptedException {
+        FakeParser browser = new FakeParser();
+
+        List<Product> products = new FallbackParser(parser(flatApi()), browser, metrics).getProducts(category("empty"));
+
+        assertThat(browser.calls).containsExactly(category("empty"));
+        assertThat(products).extracting(Product::getTitle).containsExactly("Браузер empty");
+        assertThat(fallbacks("empty")).isEqualTo(1);
+        assertThat(fallbacks("error")).isZero();
+    }
+
+    @Test
+    void failureAfterFirstPagesRepeatsCategoryInBrowser() throws InterruptedException {
+        FakeParser browser = new FakeParser();
+        List<Product> products = new ArrayList<>();
+
+        new FallbackParser(parser(flatApi()), browser, metrics).streamProducts(category("halfbroken"), products::addAll);
+
+        // Первая страница уже отдана, браузер повторяет категорию целиком
+        assertThat(products).hasSize(PAGE_SIZE + 1);
+        assertThat(browser.calls).containsExactly(category("halfbroken"));
+        assertThat(fallbacks("error")).isEqualTo(1);
+    }
+
+    private HttpJsonParser parser(ShopApi api) {
+        return new HttpJsonParser(SHOP, category("milk"), api, client, mapper, Duration.ofSeconds(5), 2, metrics);
+    }
+
+    private ShopApi flatApi() {
+        ShopApi api = new ShopApi();
+        api.setUrlTemplate(baseUrl + "/flat/{category}?offset={offset}&limit={limit}");
+        api.setPageSize(PAGE_SIZE);
+        api.setTotalPointer("/total");
+        api.setVolumePointer("/volume");
+        api.setOldPricePointer("/oldPrice");
+        api.setPriceScale(2);
+        return api;
+    }
+
+    private double fallbacks(String reason) {
+        Counter counter = registry.find("parsing.fallbacks").tags("shop", SHOP.name(), "reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private List<Integer> offsets() {
+        return requests.stream()
+                .map(request -> Integer.parseInt(query(URI.create(request)).get("offset")))
+                .toList();
+    }
+
+    private static String category(String name) {
+        return "https://shop.test/catalog/" + name;
+    }
+
+    private void serve(HttpExchange exchange, boolean nested) throws IOException {
+        URI uri = exchange.getRequestURI();
+        requests.add(uri.toString());
+        String category = uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1);
+        Map<String, String> query = query(uri);
+        int offset = Integer.parseInt(query.get("offset"));
+        int limit = Integer.parseInt(query.get("limit"));
+
+        int total = switch (category) {
+            case "milk" -> 23;
+            case "nototal" -> 25;
+            case "halfbroken" -> 30;
+            default -> 0;
+        };
+        if (category.equals("broken") || (category.equals("halfbroken") && offset > 0)) {
+            respond(exchange, 500, "{\"error\":\"boom\"}");
+            return;
+        }
+
+        ArrayNode items = mapper.createArrayNode();
+        for (int i = offset; i < Math.min(offset + limit, total); i++) {
+            String name = "Товар " + category + " " + i;
+            String href = "/p/" + category + "-" + i;
+            if (nested) {
+                ObjectNode item = items.addObject();
+                // Карточка 5 без названия - неполная
+                if (i != 5) {
+                    item.putObject("info").put("name", name);
+                }
+                item.putObject("link").put("href", href);
+                item.putObject("cost").put("current", 8999).put("base", "10990");
+                item.put("pack", "1 л");
+            } else {
+                items.addObject().put("name", name).put("url", href).put("price", 8999).put("oldPrice", 10990).put("volume", "1 л");
+            }
+        }
+
+        ObjectNode body = mapper.createObjectNode();
+        if (nested) {
+            ObjectNode data = body.putObject("data");
+            data.putObject("meta").put("total", total);
+            data.set("items", items);
+        } else {
+            if (!category.equals("nototal")) {
+                body.put("total", total);
+            }
+            body.set("products", items);
+        }
+        respond(exchange, 200, mapper.writeValueAsString(body));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    /**
+     * Браузерный парсер-заменитель: на любую категорию отдает один товар и запоминает вызовы
+     */
+    private static class FakeParser implements Parserable {
+
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public Shop getShop() {
+            return SHOP;
+        }
+
+        @Override
+        public String getDefaultCategoryUrl() {
+            return category("milk");
+        }
+
+        @Override
+        public List<Product> getProducts(String categoryUrl) {
+            calls.add(categoryUrl);
+            String name = categoryUrl.substring(categoryUrl.lastIndexOf('/') + 1);
+            return List.of(Product.builder()
+                    .title("Браузер " + name)
+                    .ref(categoryUrl + "/browser")
+                    .shop(SHOP)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.ProductBatchRepository;
+import org.example.repository.ProductBatchRepository.UpsertResult;
+import org.example.service.ProductIngestionService.IngestionResult;
+import org.example.util.ParsingMetrics;
+import org.example.util.ScrapeTimeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestionStreamTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fullBufferBlocksAcceptUntilConsumerDrains() throws Exception {
+        CountDownLatch consuming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        IngestionStream stream = stream(batch -> {
+            consuming.countDown();
+            await(release);
+            saved.add(batch.size());
+            return inserted(batch.size());
+        }, 1);
+
+        stream.accept(batch(1));
+        assertThat(consuming.await(5, TimeUnit.SECONDS)).isTrue();
+        // Потребитель занят первой пачкой, вторая занимает весь буфер
+        stream.accept(batch(2));
+
+        Future<?> third = executor.submit(() -> {
+            stream.accept(batch(3));
+            return null;
+        });
+        Thread.sleep(500);
+        assertThat(third.isDone()).as("accept returned while the buffer is full").isFalse();
+
+        release.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        IngestionResult result = assertTimeoutPreemptively(TIMEOUT, stream::finish);
+
+        assertThat(saved).containsExactly(1, 2, 3);
+        assertThat(result.getInserted()).isEqualTo(6);
+        assertThat(stream.getReceived()).isEqualTo(6);
+    }
+
+    @Test
+    void rejectedConsumerSavesBatchesInParserThread() throws Exception {
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        ThreadPoolTaskExecutor ingestionExecutor = new ThreadPoolTaskExecutor();
+        ingestionExecutor.setCorePoolSize(1);
+        ingestionExecutor.setMaxPoolSize(1);
+        ingestionExecutor.setQueueCapacity(0);
+        ingestionExecutor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ProductIngestionService service = ingestionService(ingestionExecutor, threads);
+
+            // Свободный потребитель: пачки сохраняются в его потоке
+            IngestionStream consumed = service.openStream();
+            consumed.accept(batch(2));
+            assertThat(consumed.finish().getInserted()).isEqualTo(2);
+            assertThat(threads).hasSize(1).allMatch(name -> !name.equals(Thread.currentThread().getName()));
+
+            // Единственный потребитель занят, очереди нет - executor отклоняет задачу
+            occupy(ingestionExecutor, release);
+            threads.clear();
+            IngestionStream inline = service.openStream();
+            inline.accept(batch(2));
+            inline.accept(batch(3));
+
+            assertThat(threads).containsExactly(Thread.currentThread().getName(), Thread.currentThread().getName());
+            assertThat(inline.finish().getInserted()).isEqualTo(5);
+        } finally {
+            release.countDown();
+            ingestionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void consumerFailureSurfacesFromAccept() throws Exception {
+        IngestionStream stream = stream(batch -> {
+            throw new IllegalStateException("database is down");
+        }, 1);
+
+        stream.accept(batch(1));
+        assertThatThrownBy(() -> assertTimeoutPreemptively(TIMEOUT, () -> {
+            // Потребитель упал, буфер заполняется и не освобождается
+            for (int i = 0; i < 10; i++) {
+                stream.accept(batch(1));
+            }
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Ingestion consumer failed")
+                .hasRootCauseMessage("database is down");
+    }
+
+    @Test
+    void consumerFailureSurfacesFromFinish() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        IngestionStream stream = stream(batch -> {
+            failed.countDown();
+            throw new IllegalStateException("database is down");
+        }, 4);
+
+        stream.accept(batch(1));
+        assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> assertTimeoutPreemptively(TIMEOUT, stream::finish))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Ingestion consumer failed")
+                .hasRootCauseMessage("database is down");
+    }
+
+    @Test
+    void closeOnFullBufferCancelsConsumer() throws Exception {
+        CountDownLatch consuming = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch stopped = new CountDownLatch(1);
+        ExecutorService consumerExecutor = Executors.newSingleThreadExecutor();
+        IngestionStream stream = new IngestionStream(batch -> {
+            consuming.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped.countDown();
+            }
+            return inserted(0);
+        }, 1, ScrapeTimeline.current());
+        try {
+            Future<IngestionResult> consumer = consumerExecutor.submit(stream::drain);
+            stream.attachConsumer(consumer);
+
+            stream.accept(batch(1));
+            assertThat(consuming.await(5, TimeUnit.SECONDS)).isTrue();
+            stream.accept(batch(1));
+
+            // Для маркера конца нет места - потребитель отменяется, а не висит на полном буфере
+            assertTimeoutPreemptively(TIMEOUT, stream::close);
+
+            assertThat(consumer.isCancelled()).isTrue();
+            assertThat(stopped.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(interrupted).isTrue();
+            assertThatThrownBy(() -> stream.accept(batch(1))).isInstanceOf(IllegalStateException.class);
+        } finally {
+            consumerExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeWithFreeBufferLetsConsumerFinishAcceptedBatches() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService consumerExecutor = Executors.newSingleThreadExecutor();
+        IngestionStream stream = new IngestionStream(batch -> {
+            await(release);
+            saved.add(batch.size());
+            return inserted(batch.size());
+        }, 4, ScrapeTimeline.current());
+        try {
+            Future<IngestionResult> consumer = consumerExecutor.submit(stream::drain);
+            stream.attachConsumer(consumer);
+            stream.accept(batch(1));
+            stream.accept(batch(2));
+
+            stream.close();
+            release.countDown();
+
+            assertThat(consumer.get(5, TimeUnit.SECONDS).getInserted()).isEqualTo(3);
+            assertThat(saved).containsExactly(1, 2);
+        } finally {
+            consumerExecutor.shutdownNow();
+        }
+    }
+
+    // Занять единственный поток executor'а; поток прошлого потребителя мог еще не вернуться в пул
+    private static void occupy(ThreadPoolTaskExecutor ingestionExecutor, CountDownLatch release) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (true) {
+            try {
+                ingestionExecutor.execute(() -> await(release));
+                return;
+            } catch (TaskRejectedException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private IngestionStream stream(Function<List<Product>, IngestionResult> ingest, int bufferBatches) {
+        IngestionStream stream = new IngestionStream(ingest, bufferBatches, ScrapeTimeline.current());
+        stream.attachConsumer(executor.submit(stream::drain));
+        return stream;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProductIngestionService ingestionService(ThreadPoolTaskExecutor ingestionExecutor, List<String> threads) {
+        ProductBatchRepository batchRepository = mock(ProductBatchRepository.class);
+        when(batchRepository.upsert(anyList())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            List<Product> products = invocation.getArgument(0);
+            return new UpsertResult(List.of(), products.size(), 0, 0);
+        });
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        return new ProductIngestionService(batchRepository, mock(PriceHistoryService.class), transactionTemplate,
+                mock(ApplicationEventPublisher.class), ingestionExecutor, new ParsingMetrics(new SimpleMeterRegistry()),
+                500, true, 4);
+    }
+
+    private static List<Product> batch(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = Long.toString(System.nanoTime()) + i;
+            products.add(Product.builder().title("Товар " + id).ref("test://ingestion/" + id).shop(Shop.LAVKA).build());
+        }
+        return products;
+    }
+
+    private static IngestionResult inserted(int count) {
+        return IngestionResult.builder().inserted(count).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
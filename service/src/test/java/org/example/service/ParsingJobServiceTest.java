@@ -0,0 +1,179 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.entity.Shop;
+import org.example.repository.ProductRepository;
+import org.example.service.CrawlService.ShopCrawlResult;
+import org.example.service.IntegratedParsingService.ShopStatus;
+import org.example.service.ParsingJobService.JobStatus;
+import org.example.service.ParsingJobService.JobTrigger;
+import org.example.service.ParsingJobService.JobView;
+import org.example.util.ParsingMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Магазин остается за заданием, пока его парсер не остановится, даже если задание уже завершилось по таймауту или отмене
+ */
+class ParsingJobServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // Парсер Лавки не реагирует на прерывание и работает, пока его не отпустят
+    private final CountDownLatch lavkaStarted = new CountDownLatch(1);
+    private final CountDownLatch lavkaRelease = new CountDownLatch(1);
+
+    private final ThreadPoolTaskExecutor jobExecutor = executor("job-", 2);
+    private ThreadPoolTaskExecutor parsingExecutor;
+
+    @AfterEach
+    void tearDown() {
+        lavkaRelease.countDown();
+        jobExecutor.shutdown();
+        if (parsingExecutor != null) {
+            parsingExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void timedOutShopStaysReservedUntilParserStops() {
+        ParsingJobService jobs = jobService(Duration.ofMillis(200), 2);
+
+        JobView first = jobs.submit(List.of(Shop.LAVKA), JobTrigger.API);
+        JobView timedOut = awaitJob(jobs, first.getId(), job -> job.getStatus() == JobStatus.COMPLETED);
+        assertThat(timedOut.getShopStates()).containsEntry(Shop.LAVKA, ShopStatus.TIMEOUT.name());
+        assertThat(timedOut.getParsersRunning()).containsExactly(Shop.LAVKA);
+
+        // Парсер еще работает - повторный запуск присоединяется к тому же заданию
+        assertThat(jobs.submit(List.of(Shop.LAVKA), JobTrigger.SCHEDULED).getId()).isEqualTo(first.getId());
+
+        lavkaRelease.countDown();
+        awaitJob(jobs, first.getId(), job -> job.getParsersRunning().isEmpty());
+        assertThat(jobs.submit(List.of(Shop.LAVKA), JobTrigger.API).getId()).isNotEqualTo(first.getId());
+    }
+
+    @Test
+    void cancelledShopStaysReservedUntilParserStops() throws Exception {
+        ParsingJobService jobs = jobService(Duration.ofMinutes(5), 2);
+
+        JobView first = jobs.submit(List.of(Shop.LAVKA), JobTrigger.API);
+        assertThat(lavkaStarted.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        jobs.cancel(first.getId());
+        JobView cancelled = awaitJob(jobs, first.getId(), job -> job.getStatus() == JobStatus.CANCELLED);
+        assertThat(cancelled.getParsersRunning()).containsExactly(Shop.LAVKA);
+
+        assertThat(jobs.submit(List.of(Shop.LAVKA), JobTrigger.API).getId()).isEqualTo(first.getId());
+
+        lavkaRelease.countDown();
+        awaitJob(jobs, first.getId(), job -> job.getParsersRunning().isEmpty());
+        assertThat(jobs.submit(List.of(Shop.LAVKA), JobTrigger.API).getId()).isNotEqualTo(first.getId());
+    }
+
+    @Test
+    void shopCancelledBeforeStartIsReleasedWithJob() {
+        // Один поток парсинга: Самокат ждет в очереди за зависшей Лавкой и так и не начинается
+        ParsingJobService jobs = jobService(Duration.ofMillis(200), 1);
+
+        JobView first = jobs.submit(List.of(Shop.LAVKA, Shop.SAMOKAT), JobTrigger.API);
+        JobView timedOut = awaitJob(jobs, first.getId(), job -> job.getStatus() == JobStatus.COMPLETED);
+        assertThat(timedOut.getShopStates())
+                .containsEntry(Shop.LAVKA, ShopStatus.TIMEOUT.name())
+                .containsEntry(Shop.SAMOKAT, ShopStatus.TIMEOUT.name());
+        assertThat(timedOut.getParsersRunning()).containsExactly(Shop.LAVKA);
+
+        assertThat(jobs.submit(List.of(Shop.SAMOKAT), JobTrigger.API).getId()).isNotEqualTo(first.getId());
+        assertThat(jobs.submit(List.of(Shop.LAVKA), JobTrigger.API).getId()).isEqualTo(first.getId());
+    }
+
+    private ParsingJobService jobService(Duration shopTimeout, int parsingThreads) {
+        parsingExecutor = executor("parsing-", parsingThreads);
+        Parserable lavka = parser(Shop.LAVKA);
+        Parserable samokat = parser(Shop.SAMOKAT);
+        ParserRegistry registry = mock(ParserRegistry.class);
+        when(registry.getParsers()).thenReturn(List.of(lavka, samokat));
+
+        CrawlService crawlService = mock(CrawlService.class);
+        when(crawlService.isEnabled()).thenReturn(true);
+        when(crawlService.getWindow()).thenReturn(Duration.ZERO);
+        try {
+            when(crawlService.crawlShop(any())).thenAnswer(invocation -> {
+                Parserable parser = invocation.getArgument(0);
+                if (parser.getShop() == Shop.LAVKA) {
+                    lavkaStarted.countDown();
+                    awaitUninterruptibly(lavkaRelease);
+                }
+                return ShopCrawlResult.builder().shop(parser.getShop()).build();
+            });
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        IntegratedParsingService parsingService = new IntegratedParsingService(registry, mock(ProductRepository.class),
+                mock(ProductIngestionService.class), crawlService, parsingExecutor, shopTimeout,
+                new ParsingMetrics(new SimpleMeterRegistry()),
+                new ParsingRunService(10, 100, 5, 0.5, Duration.ofSeconds(1)));
+        return new ParsingJobService(parsingService, jobExecutor, false, 50);
+    }
+
+    private static Parserable parser(Shop shop) {
+        Parserable parser = mock(Parserable.class);
+        when(parser.getShop()).thenReturn(shop);
+        return parser;
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.initialize();
+        return executor;
+    }
+
+    private static JobView awaitJob(ParsingJobService jobs, String id, Predicate<JobView> condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        JobView job = jobs.getJob(id).orElseThrow();
+        while (!condition.test(job)) {
+            assertThat(System.nanoTime()).as("job %s did not reach expected state: %s", id, job).isLessThan(deadline);
+            sleep(10);
+            job = jobs.getJob(id).orElseThrow();
+        }
+        return job;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.PriceHistoryRepository.PriceChange;
+import org.example.repository.PriceHistoryRepository.PricePoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * История цен в секционированной таблице: точка пишется только для нового товара и при изменении цены,
+ * секции текущего и следующего месяца создаются до записи.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PriceHistoryServiceTest {
+
+    @Autowired
+    private ProductIngestionService ingestionService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String ref;
+
+    @BeforeEach
+    void setUp() {
+        ref = "test://history/" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products WHERE ref = ?", ref);
+    }
+
+    @Test
+    void historyIsWrittenOnlyOnPriceChange() {
+        ingestionService.ingest(List.of(product("Кефир 1%", "100 ₽")));
+        long productId = productId();
+        assertThat(historyRows(productId)).isEqualTo(1);
+
+        // Та же цена, другое название - товар обновлен, истории не прибавилось
+        ingestionService.ingest(List.of(product("Кефир 1% 900 г", "100 ₽")));
+        assertThat(historyRows(productId)).isEqualTo(1);
+
+        ingestionService.ingest(List.of(product("Кефир 1% 900 г", "90 ₽")));
+        assertThat(historyRows(productId)).isEqualTo(2);
+
+        assertThat(priceHistoryService.getLowest(productId, 30))
+                .map(PricePoint::getPrice)
+                .hasValueSatisfying(price -> assertThat(price).isEqualByComparingTo(new BigDecimal("90.00")));
+    }
+
+    @Test
+    void partitionsForCurrentAndNextMonthHoldTheRows() {
+        ingestionService.ingest(List.of(product("Ряженка 4%", "80 ₽")));
+        long productId = productId();
+
+        YearMonth current = YearMonth.now();
+        assertThat(partitionExists(current)).isTrue();
+        assertThat(partitionExists(current.plusMonths(1))).isTrue();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + partition(current) + " WHERE product_id = ?", Long.class, productId))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void repeatedPointIsIgnored() {
+        ingestionService.ingest(List.of(product("Творог 5%", "150 ₽")));
+        long productId = productId();
+        LocalDateTime at = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        PriceChange change = new PriceChange(productId, at, 150_00L, 120_00L);
+
+        // Повторная запись той же точки (например, при повторе пачки) не падает на первичном ключе
+        priceHistoryService.record(List.of(change));
+        priceHistoryService.record(List.of(change));
+
+        assertThat(historyRows(productId)).isEqualTo(2);
+    }
+
+    @Test
+    void lowestPriceRejectsNonPositiveDays() {
+        ingestionService.ingest(List.of(product("Сметана 15%", "70 ₽")));
+        long productId = productId();
+
+        for (int days : new int[]{0, -7}) {
+            assertThatThrownBy(() -> priceHistoryService.getLowest(productId, days))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    private Product product(String title, String price) {
+        return Product.builder().title(title).ref(ref).shop(Shop.LAVKA).oldPriceStr(price).build();
+    }
+
+    private long productId() {
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE ref = ?", Long.class, ref);
+    }
+
+    private long historyRows(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_price_history WHERE product_id = ?", Long.class, productId);
+    }
+
+    private boolean partitionExists(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition(month)));
+    }
+
+    private static String partition(YearMonth month) {
+        return String.format("product_price_history_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+}
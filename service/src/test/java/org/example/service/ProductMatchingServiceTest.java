@@ -0,0 +1,121 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.entity.Shop;
+import org.example.repository.ProductMatchRepository;
+import org.example.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Пересчет сопоставлений не выполняется в потоке, опубликовавшем изменения, и объединяет накопившиеся события
+ */
+class ProductMatchingServiceTest {
+
+    // Задачи matchingExecutor выполняются вручную
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor = tasks::add;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductMatchRepository matchRepository = mock(ProductMatchRepository.class);
+    private final ProductMatchingService service = new ProductMatchingService(productRepository, matchRepository,
+            transactionTemplate(), mock(ApplicationEventPublisher.class), executor, 0.5);
+
+    @Test
+    void publisherThreadOnlySchedulesRefresh() {
+        service.onProductsChanged(new ProductsChangedEvent(List.of(product(1, Shop.LAVKA, "Молоко Простоквашино 1 л"))));
+
+        assertThat(tasks).hasSize(1);
+        verifyNoInteractions(productRepository, matchRepository);
+    }
+
+    @Test
+    void fullRebuildRunsOnceAtStartup() {
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1, Shop.LAVKA, "Молоко Простоквашино 1 л"),
+                product(2, Shop.SAMOKAT, "Молоко Простоквашино 1 л")));
+
+        service.onApplicationReady();
+        verifyNoInteractions(productRepository);
+        runTasks();
+
+        verify(productRepository).findAll();
+        verify(matchRepository).deleteAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsDuringRefreshAreCoalesced() {
+        when(productRepository.findAll()).thenReturn(List.of());
+        service.onApplicationReady();
+        runTasks();
+
+        service.onProductsChanged(new ProductsChangedEvent(List.of(product(1, Shop.LAVKA, "Молоко Простоквашино 1 л"))));
+        service.onProductsChanged(new ProductsChangedEvent(List.of(product(2, Shop.SAMOKAT, "Молоко Простоквашино 1 л"))));
+        service.onProductsChanged(new ProductsChangedEvent(List.of(product(1, Shop.LAVKA, "Молоко Простоквашино 1 л"))));
+        assertThat(tasks).hasSize(1);
+        runTasks();
+
+        ArgumentCaptor<Collection<Long>> affected = ArgumentCaptor.forClass(Collection.class);
+        // Первый вызов - полный расчет при старте, второй - один пересчет по всем трем событиям
+        verify(matchRepository, times(2)).replaceMatches(affected.capture(), anyList());
+        assertThat(affected.getValue()).containsExactlyInAnyOrder(1L, 2L);
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void refreshFallsBackToRebuildWhenStartupRebuildFailed() {
+        when(productRepository.findAll()).thenThrow(new IllegalStateException("db is down")).thenReturn(List.of());
+        service.onApplicationReady();
+        runTasks();
+        verify(matchRepository, never()).replaceMatches(anyCollection(), anyList());
+
+        service.onProductsChanged(new ProductsChangedEvent(List.of(product(1, Shop.LAVKA, "Молоко Простоквашино 1 л"))));
+        runTasks();
+
+        verify(productRepository, times(2)).findAll();
+        verify(matchRepository).deleteAll();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static Product product(long id, Shop shop, String title) {
+        return Product.builder().id(id).shop(shop).title(title).ref("test://matching/" + id).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TransactionTemplate transactionTemplate() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        return transactionTemplate;
+    }
+}
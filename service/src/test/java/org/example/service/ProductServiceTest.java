@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.repository.ProductRepository;
+import org.example.repository.ProductSearchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductService service = new ProductService(productRepository,
+            mock(ProductSearchRepository.class), mock(ComparisonIndex.class));
+
+    @Test
+    void cursorWithoutSeparatorIsBadRequest() {
+        assertBadRequest("молоко");
+    }
+
+    @Test
+    void cursorWithNonNumericIdIsBadRequest() {
+        assertBadRequest("молоко,abc");
+        assertBadRequest("молоко,");
+        assertBadRequest("молоко,99999999999999999999");
+    }
+
+    @Test
+    void titleWithCommasUsesLastSeparator() {
+        Product product = Product.builder().id(8L).title("Сыр, 45%").build();
+        when(productRepository.findAfterByTitleKeyset("Сыр, 30%", 7L, 3)).thenReturn(List.of(product));
+
+        ProductService.CursorPage page = service.getProductsAfter("Сыр, 30%,7", 2);
+
+        assertThat(page.getItems()).containsExactly(product);
+        assertThat(page.isHasNext()).isFalse();
+    }
+
+    private void assertBadRequest(String cursor) {
+        assertThatThrownBy(() -> service.getProductsAfter(cursor, 20))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verify(productRepository, never()).findAfterByTitleKeyset(anyString(), anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceParserTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "89|8900",
+            "89 ₽|8900",
+            "129 руб.|12900",
+            "от 89 ₽|8900",
+            "от 1 299 руб.|129900",
+            // Разделители разрядов: обычный, неразрывный, тонкий и узкий неразрывный пробелы, точка, апостроф
+            "1 299 ₽|129900",
+            "1\u00A0299\u00A0₽|129900",
+            "1\u2009299 ₽|129900",
+            "1\u202F299 ₽|129900",
+            "1.299|129900",
+            "1'299|129900",
+            "12 345 678 ₽|1234567800",
+            // Десятичная часть: один или два знака, дальше второго отбрасывается
+            "89,9|8990",
+            "89.9 ₽|8990",
+            "89,90|8990",
+            "89,99 ₽|8999",
+            "89,9999|8999",
+            "1.299,50 ₽|129950",
+            "1 299,5|129950",
+            // Диапазон - берется первая (минимальная) цена
+            "89–129 ₽|8900",
+            "89-129 ₽|8900",
+            "89,90 – 129,90 ₽|8990",
+    })
+    void parsesKopecks(String text, long kopecks) {
+        assertThat(PriceParser.parse(text)).isEqualTo(kopecks);
+        assertThat(PriceParser.parseKopecks(text)).isEqualTo(kopecks);
+    }
+
+    @Test
+    void threeDigitsAfterSeparatorAreThousands() {
+        // "89,900" неоднозначно: копеек с тремя знаками не бывает, поэтому запятая считается разделителем разрядов
+        assertThat(PriceParser.parse("89,900")).isEqualTo(89_900_00L);
+        assertThat(PriceParser.parse("89.900 ₽")).isEqualTo(89_900_00L);
+    }
+
+    @Test
+    void maxRubleDigitsFit() {
+        assertThat(PriceParser.parse("999999999999999")).isEqualTo(999_999_999_999_999_00L);
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {
+            "нет в наличии",
+            "₽",
+            // 16 цифр рублей - копейки могли бы не поместиться в long
+            "1000000000000000",
+            "9 999 999 999 999 999 999 ₽",
+    })
+    void noPrice(String text) {
+        assertThat(PriceParser.parse(text)).isEqualTo(PriceParser.NO_PRICE);
+        assertThat(PriceParser.parseKopecks(text)).isNull();
+    }
+}